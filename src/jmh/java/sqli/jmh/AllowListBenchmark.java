@@ -0,0 +1,74 @@
+package sqli.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sqli.AllowListProvider;
+import sqli.AllowListProviderRegistry;
+import sqli.ExactWordAllowListProvider;
+import sqli.RegexAllowListProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * @author qwefgh90
+ * Validate a parameter by allow-lists, looked up by names on every call or resolved once
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AllowListBenchmark {
+
+  private static final String[] NAMES = { "jmh.columns", "jmh.identifier", "jmh.number" };
+
+  @Param({ "clean", "malicious" })
+  public String input;
+
+  private String value;
+  private AllowListProvider resolved;
+
+  @Setup
+  public void setUp() {
+    List<String> columns = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      columns.add("column_" + i);
+    }
+    AllowListProviderRegistry.register(NAMES[0], new ExactWordAllowListProvider(false, columns));
+    AllowListProviderRegistry.register(NAMES[1], new RegexAllowListProvider(Pattern.compile("[a-z_]+ (asc|desc)")));
+    AllowListProviderRegistry.register(NAMES[2], new RegexAllowListProvider(Pattern.compile("\\d{1,9}")));
+    resolved = AllowListProviderRegistry.resolve(NAMES);
+    value = "clean".equals(input) ? "user_name desc" : Graphs.MALICIOUS;
+  }
+
+  @TearDown
+  public void tearDown() {
+    for (String name : NAMES) {
+      AllowListProviderRegistry.unregister(name);
+    }
+  }
+
+  @Benchmark
+  public boolean isValidByNames() {
+    return AllowListProviderRegistry.isValid(value, NAMES);
+  }
+
+  @Benchmark
+  public boolean isValidByResolved() {
+    return resolved.isValid(value);
+  }
+}
@@ -0,0 +1,33 @@
+package sqli.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @author qwefgh90
+ * Run benchmarks of this package, reporting throughput and allocation rate (gc profiler).
+ * <br>Arguments are the same as JMH, e.g. <code>SQLiPatternChecker -p shape=largeMap</code>.
+ *
+ * <pre>
+ * ./mvnw -Pjmh test-compile exec:exec -Djmh.args="TextSqlNode"
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    OptionsBuilder builder = new OptionsBuilder();
+    if (commandLine.getIncludes().isEmpty()) {
+      builder.include(BenchmarkRunner.class.getPackageName() + ".*");
+    }
+    Options options = builder.parent(commandLine)
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,92 @@
+package sqli.jmh;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author qwefgh90
+ * Object graphs of parameters which are scanned by benchmarks
+ */
+final class Graphs {
+
+  static final String CLEAN = "user_name";
+  static final String MALICIOUS = "name or 1=1";
+
+  private Graphs() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * @param shape one of flatDto, deepGraph, largeMap, largeList and cyclicGraph
+   * @param value a value at the end of the graph, i.e. the last value visited
+   */
+  static Object create(String shape, String value) {
+    switch (shape) {
+      case "flatDto":
+        return new Dto(value);
+      case "deepGraph":
+        Node root = new Node(CLEAN);
+        Node current = root;
+        for (int i = 0; i < 64; i++) {
+          current.next = new Node(CLEAN + i);
+          current = current.next;
+        }
+        current.name = value;
+        return root;
+      case "largeMap":
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+          map.put("key" + i, CLEAN + i);
+        }
+        map.put("last", value);
+        return map;
+      case "largeList":
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+          list.add(CLEAN + i);
+        }
+        list.add(value);
+        return list;
+      case "cyclicGraph":
+        Node first = new Node(CLEAN);
+        Node node = first;
+        for (int i = 0; i < 64; i++) {
+          Node child = new Node(CLEAN + i);
+          node.children.add(first);
+          node.next = child;
+          node = child;
+        }
+        node.name = value;
+        node.next = first;
+        return first;
+      default:
+        throw new IllegalArgumentException("Unknown shape: " + shape);
+    }
+  }
+
+  static class Dto {
+    private final int id = 1;
+    private final long version = 3L;
+    private final String firstName = "John";
+    private final String lastName = "Smith";
+    private final String email = "john@example.com";
+    private final Boolean active = Boolean.TRUE;
+    private final String orderBy;
+
+    Dto(String orderBy) {
+      this.orderBy = orderBy;
+    }
+  }
+
+  static class Node {
+    String name;
+    Node next;
+    final List<Node> children = new ArrayList<>();
+
+    Node(String name) {
+      this.name = name;
+    }
+  }
+}
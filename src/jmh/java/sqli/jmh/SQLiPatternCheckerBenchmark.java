@@ -0,0 +1,62 @@
+package sqli.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sqli.SQLiPatternChecker;
+import sqli.SqlLexer;
+import sqli.SqlStructureDetector;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author qwefgh90
+ * Scan parameter objects of several shapes. A malicious value is added after clean values,
+ * so a scan stops somewhere in the middle or at the end of a graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SQLiPatternCheckerBenchmark {
+
+  @Param({ "flatDto", "deepGraph", "largeMap", "largeList", "cyclicGraph" })
+  public String shape;
+
+  @Param({ "clean", "malicious" })
+  public String input;
+
+  private Object parameter;
+  private String value;
+
+  @Setup
+  public void setUp() {
+    value = "clean".equals(input) ? Graphs.CLEAN : Graphs.MALICIOUS;
+    parameter = Graphs.create(shape, value);
+  }
+
+  @Benchmark
+  public String containsSQLInjectionPattern() {
+    return SQLiPatternChecker.containsSQLInjectionPattern(parameter);
+  }
+
+  @Benchmark
+  public String signaturesOfValue() {
+    return SQLiPatternChecker.getSignatureMatcher().firstMatch(value);
+  }
+
+  @Benchmark
+  public String tokenStructureOfValue() {
+    return SqlStructureDetector.check(value, SqlLexer.Context.CODE);
+  }
+}
@@ -0,0 +1,63 @@
+package sqli.jmh;
+
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.scripting.xmltags.TextSqlNode;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * @author qwefgh90
+ * Substitute <code>${}</code> in a {@link TextSqlNode} with and without an injection filter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextSqlNodeBenchmark {
+
+  private static final String SQL = "select * from ${table} where name like #{keyword} order by ${orderBy}";
+
+  private final Configuration configuration = new Configuration();
+  private final Map<String, Object> parameter = new HashMap<>();
+  private TextSqlNode plain;
+  private TextSqlNode filtered;
+
+  @Setup
+  public void setUp() {
+    plain = new TextSqlNode(SQL);
+    filtered = new TextSqlNode(SQL, Pattern.compile("^[a-zA-Z0-9._ ]+$"));
+    parameter.put("table", "users");
+    parameter.put("keyword", "O'Brien");
+    parameter.put("orderBy", "name desc");
+  }
+
+  @Benchmark
+  public String substitute() {
+    DynamicContext context = new DynamicContext(configuration, parameter);
+    plain.apply(context);
+    return context.getSql();
+  }
+
+  @Benchmark
+  public String substituteWithInjectionFilter() {
+    DynamicContext context = new DynamicContext(configuration, parameter);
+    filtered.apply(context);
+    return context.getSql();
+  }
+}
@@ -39,11 +39,13 @@ import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+import org.apache.ibatis.scripting.xmltags.SubstitutionFilterFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlInjectionDetector;
 import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.type.JdbcType;
 
@@ -272,6 +274,12 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setArgNameBasedConstructorAutoMapping(booleanValueOf(props.getProperty("argNameBasedConstructorAutoMapping"), false));
     configuration.setDefaultSqlProviderType(resolveClass(props.getProperty("defaultSqlProviderType")));
     configuration.setNullableOnForEach(booleanValueOf(props.getProperty("nullableOnForEach"), false));
+    configuration.setDynamicSqlCacheSize(integerValueOf(props.getProperty("dynamicSqlCacheSize"), 0));
+    configuration.setPositionalForEachBinding(booleanValueOf(props.getProperty("positionalForEachBinding"), false));
+    configuration.setAutoMappingCacheSize(integerValueOf(props.getProperty("autoMappingCacheSize"), 0));
+    configuration.setNestedCursorStreamingEnabled(booleanValueOf(props.getProperty("nestedCursorStreamingEnabled"), false));
+    configuration.setSubstitutionFilterFactory((SubstitutionFilterFactory) createInstance(props.getProperty("substitutionFilterFactory")));
+    configuration.setSqlInjectionDetector((SqlInjectionDetector) createInstance(props.getProperty("sqlInjectionDetector")));
   }
 
   private void environmentsElement(XNode context) throws Exception {
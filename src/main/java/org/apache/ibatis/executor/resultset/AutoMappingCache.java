@@ -0,0 +1,149 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * Keeps mapped and unmapped column names and automatic mappings which are resolved for a result map and a column
+ * layout of a result set, so that executions returning the same columns do not resolve them again.
+ * <p>
+ * A column layout consists of names, JDBC types and class names of columns. Entries are shared by all statements of a
+ * configuration. Once the cache holds {@link #getMaxSize()} entries, other layouts are resolved on each execution as
+ * before.
+ *
+ * @author qwefgh90
+ */
+public class AutoMappingCache {
+
+  private final Map<Key, Object> entries = new ConcurrentHashMap<>();
+  private volatile int maxSize;
+
+  /**
+   * @return the maximum number of entries, or 0 if the cache is disabled
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @param maxSize
+   *          the maximum number of entries. 0 disables the cache.
+   */
+  public void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+    if (entries.size() > maxSize) {
+      entries.clear();
+    }
+  }
+
+  public boolean isEnabled() {
+    return maxSize > 0;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  Object get(Key key) {
+    return entries.get(key);
+  }
+
+  void put(Key key, Object value) {
+    if (entries.size() < maxSize) {
+      entries.putIfAbsent(key, value);
+    }
+  }
+
+  /**
+   * Columns of a result set, which are compared once per lookup with a hash computed once per result set.
+   */
+  static final class ColumnLayout {
+    private final List<String> columnNames;
+    private final List<JdbcType> jdbcTypes;
+    private final List<String> classNames;
+    private final int hashCode;
+
+    ColumnLayout(List<String> columnNames, List<JdbcType> jdbcTypes, List<String> classNames) {
+      this.columnNames = columnNames;
+      this.jdbcTypes = jdbcTypes;
+      this.classNames = classNames;
+      this.hashCode = Objects.hash(columnNames, jdbcTypes, classNames);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ColumnLayout)) {
+        return false;
+      }
+      ColumnLayout other = (ColumnLayout) o;
+      return hashCode == other.hashCode && columnNames.equals(other.columnNames) && jdbcTypes.equals(other.jdbcTypes)
+          && classNames.equals(other.classNames);
+    }
+  }
+
+  static final class Key {
+    private final ColumnLayout columnLayout;
+    private final String resultMapId;
+    private final String columnPrefix;
+    // the class of result objects and settings which change automatic mappings, or null for column names
+    private final Class<?> resultType;
+    private final int flags;
+
+    Key(ColumnLayout columnLayout, String resultMapId, String columnPrefix, Class<?> resultType, int flags) {
+      this.columnLayout = columnLayout;
+      this.resultMapId = resultMapId;
+      this.columnPrefix = columnPrefix;
+      this.resultType = resultType;
+      this.flags = flags;
+    }
+
+    @Override
+    public int hashCode() {
+      return (columnLayout.hashCode() * 31 + resultMapId.hashCode()) * 31 + Objects.hashCode(columnPrefix);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return resultType == other.resultType && flags == other.flags && resultMapId.equals(other.resultMapId)
+          && Objects.equals(columnPrefix, other.columnPrefix) && columnLayout.equals(other.columnLayout);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Maps a row to a result object of a simple result map, which is compiled for a column layout of a result set.
+ * <p>
+ * Columns are resolved to indexes and properties to setters once, so a row is mapped by reading each column by index
+ * with its type handler and calling a {@link MethodHandle} of its setter, without a
+ * {@link org.apache.ibatis.reflection.MetaObject} and lookups by names. A type handler which is not a built-in
+ * {@link org.apache.ibatis.type.BaseTypeHandler} reads a column by its name as before. Values are found and set in
+ * the same order and under the same conditions as {@link DefaultResultSetHandler} does for the result map.
+ *
+ * @author qwefgh90
+ */
+public final class CompiledRowMapper {
+
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final Class<?> type;
+  private final ColumnMapping[] columnMappings;
+
+  private CompiledRowMapper(Class<?> type, List<ColumnMapping> columnMappings) {
+    this.type = type;
+    this.columnMappings = columnMappings.toArray(new ColumnMapping[0]);
+  }
+
+  /**
+   * @return the class of result objects which this maps
+   */
+  public Class<?> getType() {
+    return type;
+  }
+
+  /**
+   * Sets values of the current row to a result object.
+   *
+   * @param rs
+   *          a result set on a row
+   * @param rowValue
+   *          a result object whose class is {@link #getType()}
+   * @param callSettersOnNulls
+   *          whether setters of non-primitive properties are called for null values
+   * @return true if any value is not null
+   * @throws SQLException
+   *           if a column cannot be read
+   */
+  public boolean map(ResultSet rs, Object rowValue, boolean callSettersOnNulls) throws SQLException {
+    boolean foundValues = false;
+    for (ColumnMapping columnMapping : columnMappings) {
+      final Object value = columnMapping.getResult(rs);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || (callSettersOnNulls && !columnMapping.primitive)) {
+        columnMapping.set(rowValue, value);
+      }
+    }
+    return foundValues;
+  }
+
+  private static final class ColumnMapping {
+    private final int columnIndex;
+    private final String column;
+    private final TypeHandler<?> typeHandler;
+    private final String property;
+    private final MethodHandle setter;
+    private final boolean primitive;
+
+    ColumnMapping(int columnIndex, String column, TypeHandler<?> typeHandler, String property, MethodHandle setter,
+        boolean primitive) {
+      this.columnIndex = columnIndex;
+      this.column = DefaultResultSetHandler.readsByIndex(typeHandler) ? null : column;
+      this.typeHandler = typeHandler;
+      this.property = property;
+      this.setter = setter;
+      this.primitive = primitive;
+    }
+
+    Object getResult(ResultSet rs) throws SQLException {
+      return column == null ? typeHandler.getResult(rs, columnIndex) : typeHandler.getResult(rs, column);
+    }
+
+    void set(Object rowValue, Object value) {
+      try {
+        setter.invokeExact(rowValue, value);
+      } catch (Throwable t) {
+        // same as BeanWrapper
+        throw new ReflectionException("Could not set property '" + property + "' of '" + rowValue.getClass()
+            + "' with value '" + value + "' Cause: " + t.toString(), t);
+      }
+    }
+  }
+
+  /**
+   * Builds a row mapper, which is given columns in the order they are set.
+   */
+  public static class Builder {
+    private final Class<?> type;
+    private final Reflector reflector;
+    private final List<ColumnMapping> columnMappings = new ArrayList<>();
+
+    public Builder(Class<?> type, ReflectorFactory reflectorFactory) {
+      this.type = type;
+      this.reflector = reflectorFactory.findForClass(type);
+    }
+
+    /**
+     * @param rsw
+     *          a result set
+     * @param column
+     *          a column name, which is compared ignoring case
+     * @param property
+     *          a property of the result object
+     * @param typeHandler
+     *          a type handler which reads the column
+     * @return false if the column cannot be mapped by a row mapper, e.g. a nested property or a missing column
+     */
+    public boolean add(ResultSetWrapper rsw, String column, String property, TypeHandler<?> typeHandler) {
+      int columnIndex = rsw.getColumnIndex(column);
+      if (columnIndex == 0 || property.indexOf('.') >= 0 || property.indexOf('[') >= 0
+          || !reflector.hasSetter(property)) {
+        return false;
+      }
+      MethodHandle setter = setterOf(reflector.getSetInvoker(property));
+      if (setter == null) {
+        return false;
+      }
+      columnMappings.add(new ColumnMapping(columnIndex, column, typeHandler, property, setter,
+          reflector.getSetterType(property).isPrimitive()));
+      return true;
+    }
+
+    public CompiledRowMapper build() {
+      return new CompiledRowMapper(type, columnMappings);
+    }
+
+    private static MethodHandle setterOf(Invoker invoker) {
+      try {
+        if (invoker.getClass() == MethodInvoker.class) {
+          Method method = ((MethodInvoker) invoker).getMethod();
+          try {
+            return MethodHandles.publicLookup().unreflect(method).asType(SETTER_TYPE);
+          } catch (IllegalAccessException e) {
+            if (!Reflector.canControlMemberAccessible()) {
+              return null;
+            }
+            // same as MethodInvoker
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method).asType(SETTER_TYPE);
+          }
+        }
+        if (invoker.getClass() == SetFieldInvoker.class && Reflector.canControlMemberAccessible()) {
+          Field field = ((SetFieldInvoker) invoker).getField();
+          field.setAccessible(true);
+          return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+        }
+      } catch (IllegalAccessException | RuntimeException e) {
+        // mapped by MetaObject
+      }
+      return null;  // e.g. an ambiguous setter, which fails on a call
+    }
+  }
+}
@@ -24,6 +24,7 @@ import java.sql.Statement;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -58,11 +59,14 @@ import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.BaseTypeHandler;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
@@ -77,6 +81,10 @@ import org.apache.ibatis.util.MapUtil;
 public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static final Object DEFERRED = new Object();
+  // the maximum number of column layouts whose row mappers are kept by a statement
+  private static final int MAX_COMPILED_ROW_MAPPERS = 32;
+  // the maximum number of nested row values whose table is reused for the next parent of an ordered result
+  private static final int MAX_RETAINED_NESTED_RESULT_OBJECTS = 1024;
 
   private final Executor executor;
   private final Configuration configuration;
@@ -90,9 +98,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final ReflectorFactory reflectorFactory;
 
   // nested resultmaps
-  private final Map<CacheKey, Object> nestedResultObjects = new HashMap<>();
+  private Map<RowKey, Object> nestedResultObjects = new HashMap<>();
   private final Map<String, Object> ancestorObjects = new HashMap<>();
   private Object previousRowValue;
+  // whether results of nested result maps are streamed through a cursor as if the statement is ordered
+  private boolean streamingNestedResults;
 
   // multiple resultsets
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
@@ -102,6 +112,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
   private final Map<String, List<String>> constructorAutoMappingColumns = new HashMap<>();
 
+  // Compiled row mappers of the current result set, or null values for result maps which are not compiled
+  private final Map<ResultMap, CompiledRowMapper> compiledRowMappers = new HashMap<>();
+  private ResultSetWrapper compiledRowMappersWrapper;
+
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
 
@@ -237,6 +251,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     ResultMap resultMap = resultMaps.get(0);
+    streamingNestedResults = configuration.isNestedCursorStreamingEnabled();
     return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
   }
 
@@ -400,6 +415,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    final CompiledRowMapper rowMapper = columnPrefix == null ? getCompiledRowMapper(rsw, resultMap) : null;
+    if (rowMapper != null) {
+      final Object rowValue = objectFactory.create(rowMapper.getType());
+      if (rowValue.getClass() == rowMapper.getType()) {
+        this.useConstructorMappings = false;
+        boolean foundValues = rowMapper.map(rsw.getResultSet(), rowValue, configuration.isCallSettersOnNulls());
+        return foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
+      }
+    }
     final ResultLoaderMap lazyLoader = new ResultLoaderMap();
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
     if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
@@ -415,11 +439,103 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return rowValue;
   }
 
+  //
+  // COMPILED ROW MAPPERS FOR SIMPLE RESULT MAP
+  //
+
+  private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (compiledRowMappersWrapper != rsw) {
+      compiledRowMappers.clear();
+      compiledRowMappersWrapper = rsw;
+    }
+    if (compiledRowMappers.containsKey(resultMap)) {
+      return compiledRowMappers.get(resultMap);
+    }
+    CompiledRowMapper rowMapper = null;
+    if (isCompilable(rsw, resultMap)) {
+      // unknown columns are reported by every execution
+      boolean shared = configuration.getAutoMappingUnknownColumnBehavior() == AutoMappingUnknownColumnBehavior.NONE;
+      CacheKey layoutKey = shared ? createColumnLayoutKey(rsw, resultMap) : null;
+      Map<CacheKey, CompiledRowMapper> statementRowMappers = mappedStatement.getCompiledRowMappers();
+      rowMapper = shared ? statementRowMappers.get(layoutKey) : null;
+      if (rowMapper == null) {
+        rowMapper = compileRowMapper(rsw, resultMap);
+        if (shared && rowMapper != null && statementRowMappers.size() < MAX_COMPILED_ROW_MAPPERS) {
+          statementRowMappers.put(layoutKey, rowMapper);
+        }
+      }
+    }
+    compiledRowMappers.put(resultMap, rowMapper);
+    return rowMapper;
+  }
+
+  /**
+   * A result map can be compiled if a result object is created by its default constructor and every column is set to
+   * a property of the object, i.e. no constructor mappings, nested mappings, nested properties or type handler for
+   * the whole row.
+   */
+  private boolean isCompilable(ResultSetWrapper rsw, ResultMap resultMap) {
+    final Class<?> resultType = resultMap.getType();
+    if (resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries()
+        || !resultMap.getConstructorResultMappings().isEmpty() || resultType.isInterface()
+        || Map.class.isAssignableFrom(resultType) || hasTypeHandlerForResultObject(rsw, resultType)
+        || !MetaClass.forClass(resultType, reflectorFactory).hasDefaultConstructor()
+        || configuration.getObjectWrapperFactory().getClass() != DefaultObjectWrapperFactory.class) {
+      return false;
+    }
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.isCompositeResult() || propertyMapping.getResultSet() != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private CacheKey createColumnLayoutKey(ResultSetWrapper rsw, ResultMap resultMap) {
+    CacheKey layoutKey = new CacheKey();
+    layoutKey.update(resultMap.getId());
+    layoutKey.update(rsw.getColumnNames());
+    layoutKey.update(rsw.getJdbcTypes());
+    layoutKey.update(rsw.getClassNames());
+    layoutKey.update(shouldApplyAutomaticMappings(resultMap, false));
+    layoutKey.update(configuration.isMapUnderscoreToCamelCase());
+    return layoutKey;
+  }
+
+  private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final Object resultObject = objectFactory.create(resultMap.getType());
+    if (resultObject.getClass() != resultMap.getType()) {
+      return null;
+    }
+    final MetaObject metaObject = configuration.newMetaObject(resultObject);
+    final CompiledRowMapper.Builder builder = new CompiledRowMapper.Builder(resultMap.getType(), reflectorFactory);
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, null)) {
+        if (!builder.add(rsw, mapping.column, mapping.property, mapping.typeHandler)) {
+          return null;
+        }
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      final String column = propertyMapping.getColumn();
+      // issue #541 make property optional
+      if (propertyMapping.getProperty() == null || column == null
+          || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        continue;
+      }
+      if (!builder.add(rsw, column, propertyMapping.getProperty(), propertyMapping.getTypeHandler())) {
+        return null;
+      }
+    }
+    return builder.build();
+  }
+
   //
   // GET VALUE FROM ROW FOR NESTED RESULT MAP
   //
 
-  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, CacheKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
+  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, RowKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
     final String resultMapId = resultMap.getId();
     Object rowValue = partialObject;
     if (rowValue != null) {
@@ -443,7 +559,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         foundValues = lazyLoader.size() > 0 || foundValues;
         rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
       }
-      if (combinedKey != CacheKey.NULL_CACHE_KEY) {
+      if (combinedKey != RowKey.NULL) {
         nestedResultObjects.put(combinedKey, rowValue);
       }
     }
@@ -484,7 +600,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       if (propertyMapping.isCompositeResult()
           || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
           || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw, metaObject, propertyMapping, lazyLoader, columnPrefix);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         if (property == null) {
@@ -505,58 +621,107 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
+  private Object getPropertyMappingValue(ResultSetWrapper rsw, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
     if (propertyMapping.getNestedQueryId() != null) {
-      return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
+      return getNestedQueryMappingValue(rsw.getResultSet(), metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {
-      addPendingChildRelation(rs, metaResultObject, propertyMapping);   // TODO is that OK?
+      addPendingChildRelation(rsw.getResultSet(), metaResultObject, propertyMapping);   // TODO is that OK?
       return DEFERRED;
     } else {
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      return typeHandler.getResult(rs, column);
+      return getColumnValue(rsw, typeHandler, column);
+    }
+  }
+
+  /**
+   * Reads a column by its index, which saves a lookup of the label by a driver on every row, if the type handler
+   * {@link #readsByIndex(TypeHandler) reads by index}. Otherwise it reads the column by the name as before.
+   */
+  private Object getColumnValue(ResultSetWrapper rsw, TypeHandler<?> typeHandler, String column) throws SQLException {
+    if (readsByIndex(typeHandler)) {
+      final int columnIndex = rsw.getColumnIndex(column);
+      if (columnIndex > 0) {
+        return typeHandler.getResult(rsw.getResultSet(), columnIndex);
+      }
     }
+    return typeHandler.getResult(rsw.getResultSet(), column);
   }
 
+  /**
+   * Only built-in handlers are known to read a column by its index the same way as by its name. A custom handler may
+   * override only {@link BaseTypeHandler#getNullableResult(ResultSet, String)} properly, so it is read by name.
+   *
+   * @return true if the type handler is a built-in {@link BaseTypeHandler}
+   */
+  static boolean readsByIndex(TypeHandler<?> typeHandler) {
+    return typeHandler instanceof BaseTypeHandler
+        && BaseTypeHandler.class.getPackage().equals(typeHandler.getClass().getPackage());
+  }
+
+  /**
+   * Automatic mappings are shared by executions only if resolving them has no side effect, i.e. unknown columns are
+   * ignored.
+   */
+  private AutoMappingCache.Key getSharedAutoMappingKey(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject,
+      String columnPrefix) {
+    if (configuration.getAutoMappingUnknownColumnBehavior() != AutoMappingUnknownColumnBehavior.NONE) {
+      return null;
+    }
+    final int flags = (configuration.isMapUnderscoreToCamelCase() ? 1 : 0)
+        | (configuration.isArgNameBasedConstructorAutoMapping() ? 2 : 0);
+    return rsw.getAutoMappingCacheKey(resultMap, columnPrefix, metaObject.getOriginalObject().getClass(), flags);
+  }
+
+  @SuppressWarnings("unchecked")
   private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
     final String mapKey = resultMap.getId() + ":" + columnPrefix;
     List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
     if (autoMapping == null) {
-      autoMapping = new ArrayList<>();
       final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
       // Remove the entry to release the memory
       List<String> mappedInConstructorAutoMapping = constructorAutoMappingColumns.remove(mapKey);
       if (mappedInConstructorAutoMapping != null) {
         unmappedColumnNames.removeAll(mappedInConstructorAutoMapping);
       }
-      for (String columnName : unmappedColumnNames) {
-        String propertyName = columnName;
-        if (columnPrefix != null && !columnPrefix.isEmpty()) {
-          // When columnPrefix is specified,
-          // ignore columns without the prefix.
-          if (columnName.toUpperCase(Locale.ENGLISH).startsWith(columnPrefix)) {
-            propertyName = columnName.substring(columnPrefix.length());
-          } else {
-            continue;
-          }
-        }
-        final String property = metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
-        if (property != null && metaObject.hasSetter(property)) {
-          if (resultMap.getMappedProperties().contains(property)) {
-            continue;
+      final AutoMappingCache.Key sharedKey = getSharedAutoMappingKey(rsw, resultMap, metaObject, columnPrefix);
+      if (sharedKey != null) {
+        autoMapping = (List<UnMappedColumnAutoMapping>) rsw.getAutoMappingCache().get(sharedKey);
+      }
+      if (autoMapping == null) {
+        autoMapping = new ArrayList<>();
+        for (String columnName : unmappedColumnNames) {
+          String propertyName = columnName;
+          if (columnPrefix != null && !columnPrefix.isEmpty()) {
+            // When columnPrefix is specified,
+            // ignore columns without the prefix.
+            if (columnName.toUpperCase(Locale.ENGLISH).startsWith(columnPrefix)) {
+              propertyName = columnName.substring(columnPrefix.length());
+            } else {
+              continue;
+            }
           }
-          final Class<?> propertyType = metaObject.getSetterType(property);
-          if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
-            final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+          final String property = metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
+          if (property != null && metaObject.hasSetter(property)) {
+            if (resultMap.getMappedProperties().contains(property)) {
+              continue;
+            }
+            final Class<?> propertyType = metaObject.getSetterType(property);
+            if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
+              final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
+              autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+            } else {
+              configuration.getAutoMappingUnknownColumnBehavior()
+                  .doAction(mappedStatement, columnName, property, propertyType);
+            }
           } else {
             configuration.getAutoMappingUnknownColumnBehavior()
-                .doAction(mappedStatement, columnName, property, propertyType);
+                .doAction(mappedStatement, columnName, (property != null) ? property : propertyName, null);
           }
-        } else {
-          configuration.getAutoMappingUnknownColumnBehavior()
-              .doAction(mappedStatement, columnName, (property != null) ? property : propertyName, null);
+        }
+        if (sharedKey != null) {
+          rsw.getAutoMappingCache().put(sharedKey, Collections.unmodifiableList(autoMapping));
         }
       }
       autoMappingsCache.put(mapKey, autoMapping);
@@ -569,7 +734,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     boolean foundValues = false;
     if (!autoMapping.isEmpty()) {
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        final Object value = getColumnValue(rsw, mapping.typeHandler, mapping.column);
         if (value != null) {
           foundValues = true;
         }
@@ -686,7 +851,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           value = getRowValue(rsw, resultMap, getColumnPrefix(columnPrefix, constructorMapping));
         } else {
           final TypeHandler<?> typeHandler = constructorMapping.getTypeHandler();
-          value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(column, columnPrefix));
+          value = getColumnValue(rsw, typeHandler, prependPrefix(column, columnPrefix));
         }
       } catch (ResultMapException | SQLException e) {
         throw new ExecutorException("Could not process result for mapping: " + constructorMapping, e);
@@ -761,7 +926,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       Class<?> parameterType = constructor.getParameterTypes()[i];
       String columnName = rsw.getColumnNames().get(i);
       TypeHandler<?> typeHandler = rsw.getTypeHandler(parameterType, columnName);
-      Object value = typeHandler.getResult(rsw.getResultSet(), columnName);
+      Object value = getColumnValue(rsw, typeHandler, columnName);
       constructorArgTypes.add(parameterType);
       constructorArgs.add(value);
       foundValues = value != null || foundValues;
@@ -782,7 +947,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         if (columnMatchesParam(columnName, paramName, columnPrefix)) {
           Class<?> paramType = param.getType();
           TypeHandler<?> typeHandler = rsw.getTypeHandler(paramType, columnName);
-          Object value = typeHandler.getResult(rsw.getResultSet(), columnName);
+          Object value = getColumnValue(rsw, typeHandler, columnName);
           constructorArgTypes.add(paramType);
           constructorArgs.add(value);
           final String mapKey = resultMap.getId() + ":" + columnPrefix;
@@ -831,7 +996,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       columnName = rsw.getColumnNames().get(0);
     }
     final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultType, columnName);
-    return typeHandler.getResult(rsw.getResultSet(), columnName);
+    return getColumnValue(rsw, typeHandler, columnName);
   }
 
   //
@@ -975,12 +1140,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     Object rowValue = previousRowValue;
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-      final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
+      final RowKey rowKey = createRowKey(discriminatedResultMap, rsw, null, null);
       Object partialObject = nestedResultObjects.get(rowKey);
       // issue #577 && #542
-      if (mappedStatement.isResultOrdered()) {
+      if (isResultOrdered()) {
         if (partialObject == null && rowValue != null) {
-          nestedResultObjects.clear();
+          clearNestedResultObjects();
           storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
         }
         rowValue = getRowValue(rsw, discriminatedResultMap, rowKey, null, partialObject);
@@ -991,19 +1156,40 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
+    if (rowValue != null && isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
       previousRowValue = null;
+      clearNestedResultObjects();
     } else if (rowValue != null) {
       previousRowValue = rowValue;
     }
   }
 
+  private boolean isResultOrdered() {
+    return mappedStatement.isResultOrdered() || streamingNestedResults;
+  }
+
+  /**
+   * Drops row values of a completed parent. A table grown for a parent with many nested rows is released rather than
+   * cleared, because clearing it costs its capacity for every following parent.
+   */
+  private void clearNestedResultObjects() {
+    if (nestedResultObjects.size() > MAX_RETAINED_NESTED_RESULT_OBJECTS) {
+      nestedResultObjects = new HashMap<>();
+    } else {
+      nestedResultObjects.clear();
+    }
+    if (streamingNestedResults) {
+      // a cursor never reads the result sets which pending relations wait for
+      pendingRelations.clear();
+    }
+  }
+
   //
   // NESTED RESULT MAP (JOIN MAPPING)
   //
 
-  private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, CacheKey parentRowKey, boolean newObject) {
+  private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, RowKey parentRowKey, boolean newObject) {
     boolean foundValues = false;
     for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
       final String nestedResultMapId = resultMapping.getNestedResultMapId();
@@ -1022,8 +1208,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
               continue;
             }
           }
-          final CacheKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
-          final CacheKey combinedKey = combineKeys(rowKey, parentRowKey);
+          final RowKey combinedKey = createRowKey(nestedResultMap, rsw, columnPrefix, parentRowKey);
           Object rowValue = nestedResultObjects.get(combinedKey);
           boolean knownValue = rowValue != null;
           instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject); // mandatory
@@ -1084,37 +1269,37 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // UNIQUE RESULT KEY
   //
 
-  private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
-    cacheKey.update(resultMap.getId());
+  /**
+   * Creates a key of a row value. A key of a nested row value includes the key of its parent.
+   *
+   * @param parentRowKey
+   *          the key of the parent row value, or null for a row value of the result map of a statement
+   * @return the key, or {@link RowKey#NULL} if no key column has a value or the parent key is {@link RowKey#NULL}
+   */
+  private RowKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix, RowKey parentRowKey) throws SQLException {
+    if (parentRowKey == RowKey.NULL) {
+      return RowKey.NULL;
+    }
+    final Object[] values;
+    final boolean foundValues;
     List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
     if (resultMappings.isEmpty()) {
       if (Map.class.isAssignableFrom(resultMap.getType())) {
-        createRowKeyForMap(rsw, cacheKey);
+        values = new Object[rsw.getColumnNames().size()];
+        foundValues = createRowKeyForMap(rsw, values);
       } else {
-        createRowKeyForUnmappedProperties(resultMap, rsw, cacheKey, columnPrefix);
+        List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
+        values = new Object[unmappedColumnNames.size()];
+        foundValues = createRowKeyForUnmappedProperties(resultMap, rsw, values, unmappedColumnNames, columnPrefix);
       }
     } else {
-      createRowKeyForMappedProperties(resultMap, rsw, cacheKey, resultMappings, columnPrefix);
+      values = new Object[resultMappings.size()];
+      foundValues = createRowKeyForMappedProperties(resultMap, rsw, values, resultMappings, columnPrefix);
     }
-    if (cacheKey.getUpdateCount() < 2) {
-      return CacheKey.NULL_CACHE_KEY;
+    if (!foundValues) {
+      return RowKey.NULL;
     }
-    return cacheKey;
-  }
-
-  private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
-    if (rowKey.getUpdateCount() > 1 && parentRowKey.getUpdateCount() > 1) {
-      CacheKey combinedKey;
-      try {
-        combinedKey = rowKey.clone();
-      } catch (CloneNotSupportedException e) {
-        throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
-      }
-      combinedKey.update(parentRowKey);
-      return combinedKey;
-    }
-    return CacheKey.NULL_CACHE_KEY;
+    return new RowKey(resultMap.getId(), columnPrefix, values, parentRowKey);
   }
 
   private List<ResultMapping> getResultMappingsForRowKey(ResultMap resultMap) {
@@ -1125,28 +1310,32 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return resultMappings;
   }
 
-  private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
-    for (ResultMapping resultMapping : resultMappings) {
+  private boolean createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, Object[] values, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+    boolean foundValues = false;
+    for (int i = 0; i < values.length; i++) {
+      final ResultMapping resultMapping = resultMappings.get(i);
       if (resultMapping.isSimple()) {
         final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
         final TypeHandler<?> th = resultMapping.getTypeHandler();
         List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
         if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
+          final Object value = getColumnValue(rsw, th, column);
           if (value != null || configuration.isReturnInstanceForEmptyRow()) {
-            cacheKey.update(column);
-            cacheKey.update(value);
+            values[i] = value;
+            foundValues = true;
           }
         }
       }
     }
+    return foundValues;
   }
 
-  private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, String columnPrefix) throws SQLException {
+  private boolean createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, Object[] values, List<String> unmappedColumnNames, String columnPrefix) throws SQLException {
     final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
-    List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
-    for (String column : unmappedColumnNames) {
+    boolean foundValues = false;
+    for (int i = 0; i < values.length; i++) {
+      final String column = unmappedColumnNames.get(i);
       String property = column;
       if (columnPrefix != null && !columnPrefix.isEmpty()) {
         // When columnPrefix is specified, ignore columns without the prefix.
@@ -1159,22 +1348,24 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
         String value = rsw.getResultSet().getString(column);
         if (value != null) {
-          cacheKey.update(column);
-          cacheKey.update(value);
+          values[i] = value;
+          foundValues = true;
         }
       }
     }
+    return foundValues;
   }
 
-  private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
-    List<String> columnNames = rsw.getColumnNames();
-    for (String columnName : columnNames) {
-      final String value = rsw.getResultSet().getString(columnName);
+  private boolean createRowKeyForMap(ResultSetWrapper rsw, Object[] values) throws SQLException {
+    boolean foundValues = false;
+    for (int i = 0; i < values.length; i++) {
+      final String value = rsw.getResultSet().getString(i + 1);
       if (value != null) {
-        cacheKey.update(columnName);
-        cacheKey.update(value);
+        values[i] = value;
+        foundValues = true;
       }
     }
+    return foundValues;
   }
 
   private void linkObjects(MetaObject metaObject, ResultMapping resultMapping, Object rowValue) {
@@ -49,10 +49,14 @@ public class ResultSetWrapper {
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
   private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
   private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+  private final Map<String, Integer> columnIndexMap = new HashMap<>();
+  private final AutoMappingCache autoMappingCache;
+  private AutoMappingCache.ColumnLayout columnLayout;
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    this.autoMappingCache = configuration.getAutoMappingCache();
     this.resultSet = rs;
     final ResultSetMetaData metaData = rs.getMetaData();
     final int columnCount = metaData.getColumnCount();
@@ -88,6 +92,29 @@ public class ResultSetWrapper {
     return null;
   }
 
+  /**
+   * Gets the index of a column. A name is compared ignoring case, as a column label given to {@link ResultSet} is,
+   * and it is resolved once per result set.
+   *
+   * @param columnName
+   *          the column name
+   * @return the index of the first matching column starting at 1, or 0 if no column matches
+   */
+  public int getColumnIndex(String columnName) {
+    Integer columnIndex = columnIndexMap.get(columnName);
+    if (columnIndex == null) {
+      columnIndex = 0;
+      for (int i = 0; i < columnNames.size(); i++) {
+        if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+          columnIndex = i + 1;
+          break;
+        }
+      }
+      columnIndexMap.put(columnName, columnIndex);
+    }
+    return columnIndex;
+  }
+
   /**
    * Gets the type handler to use when reading the result set.
    * Tries to get from the TypeHandlerRegistry by searching for the property type.
@@ -144,7 +171,34 @@ public class ResultSetWrapper {
     return null;
   }
 
+  /**
+   * Gets a key of automatic mappings shared by executions which return the same columns.
+   *
+   * @return the key, or null if the shared cache is disabled
+   */
+  AutoMappingCache.Key getAutoMappingCacheKey(ResultMap resultMap, String columnPrefix, Class<?> resultType, int flags) {
+    if (!autoMappingCache.isEnabled()) {
+      return null;
+    }
+    if (columnLayout == null) {
+      columnLayout = new AutoMappingCache.ColumnLayout(columnNames, jdbcTypes, classNames);
+    }
+    return new AutoMappingCache.Key(columnLayout, resultMap.getId(), columnPrefix, resultType, flags);
+  }
+
+  AutoMappingCache getAutoMappingCache() {
+    return autoMappingCache;
+  }
+
   private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
+    final AutoMappingCache.Key cacheKey = getAutoMappingCacheKey(resultMap, columnPrefix, null, 0);
+    final ColumnNames cached = cacheKey == null ? null : (ColumnNames) autoMappingCache.get(cacheKey);
+    if (cached != null) {
+      // copied because unmapped columns are removed when they are mapped to constructor args
+      mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), new ArrayList<>(cached.mapped));
+      unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), new ArrayList<>(cached.unmapped));
+      return;
+    }
     List<String> mappedColumnNames = new ArrayList<>();
     List<String> unmappedColumnNames = new ArrayList<>();
     final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
@@ -157,6 +211,9 @@ public class ResultSetWrapper {
         unmappedColumnNames.add(columnName);
       }
     }
+    if (cacheKey != null) {
+      autoMappingCache.put(cacheKey, new ColumnNames(new ArrayList<>(mappedColumnNames), new ArrayList<>(unmappedColumnNames)));
+    }
     mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
     unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), unmappedColumnNames);
   }
@@ -194,4 +251,14 @@ public class ResultSetWrapper {
     return prefixed;
   }
 
+  private static final class ColumnNames {
+    private final List<String> mapped;
+    private final List<String> unmapped;
+
+    ColumnNames(List<String> mapped, List<String> unmapped) {
+      this.mapped = mapped;
+      this.unmapped = unmapped;
+    }
+  }
+
 }
@@ -0,0 +1,91 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import org.apache.ibatis.reflection.ArrayUtil;
+
+/**
+ * Identifies a row value of a nested result map in a result set.
+ * <p>
+ * Unlike {@link org.apache.ibatis.cache.CacheKey}, values of key columns are kept in an array of a fixed size, in which
+ * a column not read or null is null, and a key of a nested row refers to the key of its parent row instead of copying
+ * it. The hash code is computed once.
+ *
+ * @author qwefgh90
+ */
+final class RowKey {
+
+  /**
+   * A key of a row which has no value in key columns. It is never stored.
+   */
+  static final RowKey NULL = new RowKey("", null, new Object[0], null);
+
+  private final String resultMapId;
+  private final String columnPrefix;
+  private final Object[] values;
+  private final RowKey parent;
+  private final int hashCode;
+
+  RowKey(String resultMapId, String columnPrefix, Object[] values, RowKey parent) {
+    this.resultMapId = resultMapId;
+    this.columnPrefix = columnPrefix;
+    this.values = values;
+    this.parent = parent;
+    int hash = resultMapId.hashCode() * 31 + Objects.hashCode(columnPrefix);
+    for (Object value : values) {
+      hash = hash * 31 + (value == null ? 0 : ArrayUtil.hashCode(value));
+    }
+    this.hashCode = parent == null ? hash : hash * 31 + parent.hashCode;
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof RowKey)) {
+      return false;
+    }
+    RowKey other = (RowKey) o;
+    if (hashCode != other.hashCode || values.length != other.values.length || !resultMapId.equals(other.resultMapId)
+        || !Objects.equals(columnPrefix, other.columnPrefix)) {
+      return false;
+    }
+    for (int i = 0; i < values.length; i++) {
+      if (!ArrayUtil.equals(values[i], other.values[i])) {
+        return false;
+      }
+    }
+    return Objects.equals(parent, other.parent);
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner joiner = new StringJoiner(":");
+    joiner.add(resultMapId);
+    Arrays.stream(values).map(ArrayUtil::toString).forEach(joiner::add);
+    return parent == null ? joiner.toString() : joiner + "/" + parent;
+  }
+}
@@ -18,11 +18,15 @@ package org.apache.ibatis.mapping;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
@@ -56,6 +60,7 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private final Map<CacheKey, CompiledRowMapper> compiledRowMappers = new ConcurrentHashMap<>();
 
   MappedStatement() {
     // constructor disabled
@@ -290,6 +295,16 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * Gets row mappers compiled for simple result maps of this statement, keyed by a result map and a column layout of
+   * a result set.
+   *
+   * @return the row mappers
+   */
+  public Map<CacheKey, CompiledRowMapper> getCompiledRowMappers() {
+    return compiledRowMappers;
+  }
+
   /**
    * Gets the resul sets.
    *
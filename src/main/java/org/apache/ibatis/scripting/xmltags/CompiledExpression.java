@@ -0,0 +1,377 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import ognl.ASTConst;
+import ognl.ASTMethod;
+import ognl.ASTProperty;
+import ognl.MapPropertyAccessor;
+import ognl.MethodFailedException;
+import ognl.Node;
+import ognl.ObjectMethodAccessor;
+import ognl.ObjectPropertyAccessor;
+import ognl.OgnlContext;
+import ognl.OgnlException;
+import ognl.OgnlOps;
+import ognl.OgnlRuntime;
+import ognl.PropertyAccessor;
+
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * An OGNL expression compiled into a tree of evaluators, which skips the interpreter of OGNL for the expressions used
+ * by most of dynamic SQL, e.g. <code>name != null and name != ''</code> or <code>ids.size() &gt; 0</code>.
+ * <p>
+ * Property paths, zero-argument method calls, constants, comparisons, <code>!</code>, <code>and</code> and
+ * <code>or</code> are compiled from the AST parsed by OGNL, so an expression means exactly what it means to OGNL.
+ * Getters and methods are resolved once per class of a source object and invoked through {@link MethodHandle}s.
+ * A step which has no such getter for its source, e.g. a field, a pseudo property of a list or a null source, is
+ * evaluated by OGNL from the value computed so far, so a getter is never invoked twice. An exception thrown by a getter
+ * or a method is wrapped as OGNL wraps it.
+ *
+ * @author qwefgh90
+ */
+final class CompiledExpression {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final Set<String> MAP_PROPERTIES = Set.of("size", "keys", "keySet", "values", "isEmpty");
+  // a step of a class which has no compiled getter is evaluated by OGNL
+  private static final Getter NO_GETTER = source -> {
+    throw new IllegalStateException("Not a compiled getter");
+  };
+
+  private final Evaluator evaluator;
+
+  private CompiledExpression(Evaluator evaluator) {
+    this.evaluator = evaluator;
+  }
+
+  /**
+   * @param node a node parsed by {@link ognl.Ognl#parseExpression(String)}
+   * @return a compiled expression, or null if the expression has a node which is not compiled
+   */
+  static CompiledExpression compile(Object node) {
+    if (!Reflector.canControlMemberAccessible()) {
+      return null;  // OgnlMemberAccess denies any member, which is left to OGNL
+    }
+    Evaluator evaluator = compileNode((Node) node);
+    return evaluator == null ? null : new CompiledExpression(evaluator);
+  }
+
+  /**
+   * @param root a root object of the expression
+   * @return the value of the expression
+   * @throws OgnlException if OGNL would throw it, e.g. for a null in the middle of a path or a failed getter
+   */
+  Object evaluate(Object root) throws OgnlException {
+    return evaluator.evaluate(root);
+  }
+
+  private static Evaluator compileNode(Node node) {
+    switch (node.getClass().getSimpleName()) {
+      case "ASTConst":
+        Object value = ((ASTConst) node).getValue();
+        return root -> value;
+      case "ASTProperty":
+      case "ASTMethod":
+        Step step = compileStep(node);
+        return step == null ? null : root -> step.apply(root, root);
+      case "ASTChain":
+        return compileChain(node);
+      case "ASTAnd":
+        return compileJunction(node, false);
+      case "ASTOr":
+        return compileJunction(node, true);
+      case "ASTNot":
+        Evaluator operand = compileNode(node.jjtGetChild(0));
+        return operand == null ? null : root -> OgnlOps.booleanValue(operand.evaluate(root)) ? Boolean.FALSE : Boolean.TRUE;
+      case "ASTEq":
+        return compileComparison(node, (left, right) -> OgnlOps.equal(left, right));
+      case "ASTNotEq":
+        return compileComparison(node, (left, right) -> !OgnlOps.equal(left, right));
+      case "ASTLess":
+        return compileComparison(node, (left, right) -> OgnlOps.less(left, right));
+      case "ASTLessEq":
+        return compileComparison(node, (left, right) -> !OgnlOps.greater(left, right));
+      case "ASTGreater":
+        return compileComparison(node, (left, right) -> OgnlOps.greater(left, right));
+      case "ASTGreaterEq":
+        return compileComparison(node, (left, right) -> !OgnlOps.less(left, right));
+      default:
+        return null;
+    }
+  }
+
+  private static Evaluator compileChain(Node node) {
+    Step[] steps = new Step[node.jjtGetNumChildren()];
+    for (int i = 0; i < steps.length; i++) {
+      steps[i] = compileStep(node.jjtGetChild(i));
+      if (steps[i] == null) {
+        return null;
+      }
+    }
+    return root -> {
+      Object value = root;
+      for (Step step : steps) {
+        value = step.apply(root, value);
+      }
+      return value;
+    };
+  }
+
+  /**
+   * Same as ASTAnd and ASTOr, the value of the last evaluated operand is returned.
+   */
+  private static Evaluator compileJunction(Node node, boolean stopIfTrue) {
+    Evaluator[] operands = compileChildren(node);
+    if (operands == null) {
+      return null;
+    }
+    int last = operands.length - 1;
+    return root -> {
+      Object result = null;
+      for (int i = 0; i <= last; i++) {
+        result = operands[i].evaluate(root);
+        if (i != last && OgnlOps.booleanValue(result) == stopIfTrue) {
+          break;
+        }
+      }
+      return result;
+    };
+  }
+
+  private static Evaluator compileComparison(Node node, Comparison comparison) {
+    Evaluator[] operands = compileChildren(node);
+    if (operands == null || operands.length != 2) {
+      return null;
+    }
+    Evaluator left = operands[0];
+    Evaluator right = operands[1];
+    return root -> comparison.test(left.evaluate(root), right.evaluate(root)) ? Boolean.TRUE : Boolean.FALSE;
+  }
+
+  private static Evaluator[] compileChildren(Node node) {
+    Evaluator[] children = new Evaluator[node.jjtGetNumChildren()];
+    for (int i = 0; i < children.length; i++) {
+      children[i] = compileNode(node.jjtGetChild(i));
+      if (children[i] == null) {
+        return null;
+      }
+    }
+    return children;
+  }
+
+  private static Step compileStep(Node node) {
+    if (node instanceof ASTProperty) {
+      ASTProperty property = (ASTProperty) node;
+      if (property.isIndexedAccess() || property.jjtGetNumChildren() != 1
+          || !(property.jjtGetChild(0) instanceof ASTConst)) {
+        return null;
+      }
+      Object name = ((ASTConst) property.jjtGetChild(0)).getValue();
+      return name instanceof String ? new PropertyStep((String) name, node) : null;
+    }
+    if (node instanceof ASTMethod && node.jjtGetNumChildren() == 0) {
+      return new MethodStep(((ASTMethod) node).getMethodName(), node);
+    }
+    return null;
+  }
+
+  private static Getter getterOf(MethodHandle handle, Wrapper wrapper) {
+    MethodHandle getter = handle.asType(GETTER_TYPE);
+    return source -> {
+      try {
+        return getter.invokeExact(source);
+      } catch (Throwable e) {
+        throw wrapper.wrap(source, e);
+      }
+    };
+  }
+
+  /**
+   * @return a handle of a public zero-argument instance method, or null if it is not accessible
+   */
+  private static MethodHandle unreflect(Class<?> type, Method method) {
+    if (method == null || method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers())) {
+      return null;
+    }
+    try {
+      return MethodHandles.publicLookup().unreflect(method);
+    } catch (IllegalAccessException e) {
+      // e.g. a public method of a private class, which is accessible through a public interface or super class
+    }
+    Deque<Class<?>> types = new ArrayDeque<>();
+    Set<Class<?>> visited = new HashSet<>();
+    types.add(type);
+    while (!types.isEmpty()) {
+      Class<?> current = types.poll();
+      if (!visited.add(current)) {
+        continue;
+      }
+      if (Modifier.isPublic(current.getModifiers())) {
+        try {
+          Method candidate = current.getMethod(method.getName());
+          if (!Modifier.isStatic(candidate.getModifiers())) {
+            return MethodHandles.publicLookup().unreflect(candidate);
+          }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+          // try other types
+        }
+      }
+      if (current.getSuperclass() != null) {
+        types.add(current.getSuperclass());
+      }
+      types.addAll(Arrays.asList(current.getInterfaces()));
+    }
+    try {
+      method.setAccessible(true);
+      return MethodHandles.lookup().unreflect(method);
+    } catch (RuntimeException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static OgnlContext newContext(Object root) {
+    return (OgnlContext) OgnlCache.createContext(root);
+  }
+
+  @FunctionalInterface
+  private interface Evaluator {
+    Object evaluate(Object root) throws OgnlException;
+  }
+
+  @FunctionalInterface
+  private interface Getter {
+    Object get(Object source) throws OgnlException;
+  }
+
+  @FunctionalInterface
+  private interface Wrapper {
+    OgnlException wrap(Object source, Throwable cause);
+  }
+
+  /**
+   * A property or a method of a source, which is evaluated by OGNL if the class of the source has no compiled getter.
+   * OGNL throws for a null source and reads static members of a class.
+   */
+  private abstract static class Step {
+    private final Node node;
+
+    Step(Node node) {
+      this.node = node;
+    }
+
+    Object apply(Object root, Object source) throws OgnlException {
+      Getter getter = source == null || source instanceof Class ? NO_GETTER : getter(source.getClass());
+      return getter == NO_GETTER ? node.getValue(newContext(root), source) : getter.get(source);
+    }
+
+    abstract Getter getter(Class<?> type);
+  }
+
+  @FunctionalInterface
+  private interface Comparison {
+    boolean test(Object left, Object right);
+  }
+
+  /**
+   * A property of a source, which is read as OGNL reads it by the property accessor registered for its class.
+   */
+  private static final class PropertyStep extends Step {
+    private final String name;
+    private final ClassValue<Getter> getters = new ClassValue<Getter>() {
+      @Override
+      protected Getter computeValue(Class<?> type) {
+        try {
+          return resolve(type);
+        } catch (Exception e) {
+          return NO_GETTER;
+        }
+      }
+    };
+
+    PropertyStep(String name, Node node) {
+      super(node);
+      this.name = name;
+    }
+
+    @Override
+    Getter getter(Class<?> type) {
+      return getters.get(type);
+    }
+
+    private Getter resolve(Class<?> type) throws Exception {
+      PropertyAccessor accessor = OgnlRuntime.getPropertyAccessor(type);
+      if (accessor instanceof DynamicContext.ContextAccessor) {
+        DynamicContext.ContextAccessor contextAccessor = (DynamicContext.ContextAccessor) accessor;
+        return source -> contextAccessor.getProperty(null, source, name);
+      }
+      if (accessor.getClass() == MapPropertyAccessor.class) {
+        return MAP_PROPERTIES.contains(name) ? NO_GETTER : source -> ((Map<?, ?>) source).get(name);
+      }
+      if (accessor.getClass() == ObjectPropertyAccessor.class) {
+        // a property without a getter is read from a field by OGNL
+        MethodHandle handle = unreflect(type, OgnlRuntime.getGetMethod(newContext(null), type, name));
+        return handle == null ? NO_GETTER : getterOf(handle, (source, e) -> new OgnlException(name, e));
+      }
+      return NO_GETTER;  // e.g. lists, sets and arrays have their own pseudo properties
+    }
+  }
+
+  /**
+   * A zero-argument method of a source.
+   */
+  private static final class MethodStep extends Step {
+    private final String name;
+    private final ClassValue<Getter> methods = new ClassValue<Getter>() {
+      @Override
+      protected Getter computeValue(Class<?> type) {
+        try {
+          if (OgnlRuntime.getMethodAccessor(type).getClass() != ObjectMethodAccessor.class) {
+            return NO_GETTER;
+          }
+          MethodHandle handle = unreflect(type, type.getMethod(name));
+          return handle == null ? NO_GETTER
+              : getterOf(handle, (source, e) -> new MethodFailedException(source, name, e));
+        } catch (Exception e) {
+          return NO_GETTER;
+        }
+      }
+    };
+
+    MethodStep(String name, Node node) {
+      super(node);
+      this.name = name;
+    }
+
+    @Override
+    Getter getter(Class<?> type) {
+      return methods.get(type);
+    }
+  }
+}
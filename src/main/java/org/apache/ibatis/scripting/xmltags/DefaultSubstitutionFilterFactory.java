@@ -0,0 +1,37 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.scripting.ScriptingException;
+
+/**
+ * A factory which supports patterns only. Allow-lists are resolved by a factory which knows them.
+ *
+ * @author qwefgh90
+ */
+public class DefaultSubstitutionFilterFactory implements SubstitutionFilterFactory {
+
+  @Override
+  public SubstitutionFilter create(String allowLists, String regex) {
+    if (allowLists != null && !allowLists.replace(',', ' ').trim().isEmpty()) {
+      throw new ScriptingException("Allow-lists [" + allowLists + "] cannot be resolved. "
+          + "Set the substitutionFilterFactory setting to a factory which resolves them.");
+    }
+    return regex == null ? null : SubstitutionFilter.pattern(Pattern.compile(regex));
+  }
+}
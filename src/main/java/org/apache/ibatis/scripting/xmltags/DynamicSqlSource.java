@@ -15,9 +15,23 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -26,23 +40,122 @@ import org.apache.ibatis.session.Configuration;
 public class DynamicSqlSource implements SqlSource {
 
   private final Configuration configuration;
-  private final SqlNode rootSqlNode;
+  private final SqlPlan plan;
+  private final List<String> substitutionExpressions;
+  private final Map<String, Set<SubstitutionContext>> substitutionContexts;
+  private final Cache sqlSourceCache;
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
-    this.rootSqlNode = rootSqlNode;
+    this.plan = SqlPlan.compile(rootSqlNode);
+    this.substitutionContexts = SubstitutionAnalyzer.analyze(rootSqlNode);
+    this.substitutionExpressions = substitutionContexts == null ? null
+        : Collections.unmodifiableList(new ArrayList<>(substitutionContexts.keySet()));
+    int cacheSize = configuration.getDynamicSqlCacheSize();
+    if (cacheSize > 0) {
+      LruCache lruCache = new LruCache(new PerpetualCache(DynamicSqlSource.class.getName()));
+      lruCache.setSize(cacheSize);
+      this.sqlSourceCache = new SynchronizedCache(lruCache);
+    } else {
+      this.sqlSourceCache = null;
+    }
   }
 
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
-    DynamicContext context = new DynamicContext(configuration, parameterObject);
-    rootSqlNode.apply(context);
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+    DynamicContext context = plan.render(configuration, parameterObject);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+    SqlSource sqlSource = sqlSourceCache == null ? parse(context, parameterType) : cachedParse(context, parameterType);
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     context.getBindings().forEach(boundSql::setAdditionalParameter);
     return boundSql;
   }
 
+  private SqlSource parse(DynamicContext context, Class<?> parameterType) {
+    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+    return sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+  }
+
+  /**
+   * Types of parameter mappings are resolved from the parameter type and values of bindings, so they are a part of
+   * a key along with the generated SQL. Types of nested properties, e.g. <code>#{item.name}</code> in a foreach,
+   * can depend on values deeper than bindings, so they are resolved again and compared on every hit.
+   */
+  private SqlSource cachedParse(DynamicContext context, Class<?> parameterType) {
+    String sql = context.getSql();
+    Map<String, Object> bindings = context.getBindings();
+    CacheKey key = new CacheKey();
+    key.update(sql);
+    key.update(parameterType);
+    bindings.forEach((name, value) -> {
+      key.update(name);
+      key.update(value == null ? null : value.getClass());
+    });
+    ParsedSql parsed = (ParsedSql) sqlSourceCache.getObject(key);
+    MetaObject metaBindings = configuration.newMetaObject(bindings);
+    if (parsed != null && parsed.matches(metaBindings)) {
+      return parsed.sqlSource;
+    }
+    SqlSource sqlSource = parse(context, parameterType);
+    sqlSourceCache.putObject(key, new ParsedSql(sqlSource, sqlSource.getBoundSql(null).getParameterMappings(), metaBindings));
+    return sqlSource;
+  }
+
+  /**
+   * Gets expressions whose values reach string substitution (<code>${}</code>). Each expression can be evaluated
+   * against the parameter object with {@link OgnlCache}.
+   *
+   * @return the expressions, or null if they cannot be determined because of unknown {@link SqlNode}s
+   */
+  public List<String> getSubstitutionExpressions() {
+    return substitutionExpressions;
+  }
+
+  /**
+   * Gets lexical contexts where values of {@link #getSubstitutionExpressions()} are substituted, e.g.
+   * {@link SubstitutionContext#STRING} for <code>'${name}'</code>.
+   *
+   * @return the contexts by expression, or null if they cannot be determined because of unknown {@link SqlNode}s
+   */
+  public Map<String, Set<SubstitutionContext>> getSubstitutionContexts() {
+    return substitutionContexts;
+  }
+
+  private static class ParsedSql {
+    final SqlSource sqlSource;
+    // nested properties in bindings and their types, or null if they are not in bindings
+    final String[] nestedProperties;
+    final Class<?>[] nestedTypes;
+
+    ParsedSql(SqlSource sqlSource, List<ParameterMapping> parameterMappings, MetaObject metaBindings) {
+      this.sqlSource = sqlSource;
+      List<String> properties = new ArrayList<>();
+      for (ParameterMapping parameterMapping : parameterMappings) {
+        String property = parameterMapping.getProperty();
+        PropertyTokenizer prop = new PropertyTokenizer(property);
+        if (prop.hasNext() || prop.getIndex() != null) {
+          properties.add(property);
+        }
+      }
+      this.nestedProperties = properties.toArray(new String[0]);
+      this.nestedTypes = new Class<?>[nestedProperties.length];
+      for (int i = 0; i < nestedProperties.length; i++) {
+        nestedTypes[i] = typeOf(metaBindings, nestedProperties[i]);
+      }
+    }
+
+    boolean matches(MetaObject metaBindings) {
+      for (int i = 0; i < nestedProperties.length; i++) {
+        if (nestedTypes[i] != typeOf(metaBindings, nestedProperties[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static Class<?> typeOf(MetaObject metaBindings, String property) {
+      return metaBindings.hasGetter(property) ? metaBindings.getGetterType(property) : null;
+    }
+  }
+
 }
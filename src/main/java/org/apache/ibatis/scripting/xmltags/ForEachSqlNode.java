@@ -15,6 +15,9 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -37,6 +40,8 @@ public class ForEachSqlNode implements SqlNode {
   private final String item;
   private final String index;
   private final Configuration configuration;
+  // the body split around #{item}, or null if the body is not a static text with a single #{item}
+  private final String[] simpleItemText;
 
   /**
    * @deprecated Since 3.5.9, use the {@link #ForEachSqlNode(Configuration, SqlNode, String, Boolean, String, String, String, String, String)}.
@@ -60,6 +65,7 @@ public class ForEachSqlNode implements SqlNode {
     this.index = index;
     this.item = item;
     this.configuration = configuration;
+    this.simpleItemText = splitSimpleItemText(contents, item);
   }
 
   @Override
@@ -70,6 +76,10 @@ public class ForEachSqlNode implements SqlNode {
     if (iterable == null || !iterable.iterator().hasNext()) {
       return true;
     }
+    if (simpleItemText != null && configuration.isPositionalForEachBinding()) {
+      applyPositional(context, iterable);
+      return true;
+    }
     boolean first = true;
     applyOpen(context);
     int i = 0;
@@ -104,6 +114,76 @@ public class ForEachSqlNode implements SqlNode {
     return true;
   }
 
+  /**
+   * Renders a body like <code>#{item}</code> without evaluating it for each item. All items are bound to a single list,
+   * and each iteration refers to an element of it, e.g. <code>#{__frch_item_0[2]}</code>, so no binding and no
+   * {@link FilteredDynamicContext} are created per item. The generated SQL is the same as
+   * {@link #apply(DynamicContext)} except the names of parameters.
+   */
+  private void applyPositional(DynamicContext context, Iterable<?> iterable) {
+    List<Object> items = iterable instanceof Collection ? new ArrayList<>(((Collection<?>) iterable).size())
+        : new ArrayList<>();
+    String name = itemizeItem(item, context.getUniqueNumber());
+    context.bind(name, items);
+    applyOpen(context);
+    StringBuilder text = new StringBuilder();
+    for (Object o : iterable) {
+      // Issue #709
+      items.add(o instanceof Map.Entry ? ((Map.Entry<?, ?>) o).getValue() : o);
+      // same as PrefixedContext, which appends an empty prefix before the first item
+      context.appendSql(items.size() == 1 || separator == null ? "" : separator);
+      text.setLength(0);
+      text.append(simpleItemText[0]).append("#{").append(name).append('[').append(items.size() - 1).append(']')
+          .append(simpleItemText[1]).append('}').append(simpleItemText[2]);
+      context.appendSql(text.toString());
+    }
+    applyClose(context);
+    context.getBindings().remove(item);
+    context.getBindings().remove(index);
+  }
+
+  /**
+   * @return the text before <code>#{item</code>, the rest of the placeholder, e.g. <code>,jdbcType=INTEGER</code>,
+   *         and the text after it, or null if the body is anything else
+   */
+  private static String[] splitSimpleItemText(SqlNode contents, String item) {
+    if (item == null) {
+      return null;
+    }
+    if (contents instanceof MixedSqlNode && ((MixedSqlNode) contents).getContents().size() == 1) {
+      contents = ((MixedSqlNode) contents).getContents().get(0);
+    }
+    if (!(contents instanceof StaticTextSqlNode)) {
+      return null;
+    }
+    String text = ((StaticTextSqlNode) contents).getText();
+    if (text.indexOf('\u0000') >= 0) {
+      return null;
+    }
+    List<String> placeholders = new ArrayList<>();
+    // unescapes the text as FilteredDynamicContext does
+    String parsed = new GenericTokenParser("#{", "}", content -> {
+      placeholders.add(content);
+      return "\u0000";
+    }).parse(text);
+    if (placeholders.size() != 1) {
+      return null;
+    }
+    String placeholder = placeholders.get(0);
+    int start = 0;
+    while (start < placeholder.length() && Character.isWhitespace(placeholder.charAt(start))) {
+      start++;
+    }
+    int end = start + item.length();
+    if (!placeholder.startsWith(item, start)
+        || end < placeholder.length() && ",:".indexOf(placeholder.charAt(end)) < 0
+            && !Character.isWhitespace(placeholder.charAt(end))) {
+      return null;
+    }
+    int marker = parsed.indexOf('\u0000');
+    return new String[] { parsed.substring(0, marker), placeholder.substring(end), parsed.substring(marker + 1) };
+  }
+
   private void applyIndex(DynamicContext context, Object o, int i) {
     if (index != null) {
       context.bind(index, o);
@@ -134,6 +214,22 @@ public class ForEachSqlNode implements SqlNode {
     return ITEM_PREFIX + item + "_" + i;
   }
 
+  SqlNode getContents() {
+    return contents;
+  }
+
+  String getCollectionExpression() {
+    return collectionExpression;
+  }
+
+  String getItem() {
+    return item;
+  }
+
+  String getIndex() {
+    return index;
+  }
+
   private static class FilteredDynamicContext extends DynamicContext {
     private final DynamicContext delegate;
     private final int index;
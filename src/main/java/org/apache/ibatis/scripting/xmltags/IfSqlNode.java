@@ -38,4 +38,11 @@ public class IfSqlNode implements SqlNode {
     return false;
   }
 
+  SqlNode getContents() {
+    return contents;
+  }
+
+  String getTest() {
+    return test;
+  }
 }
@@ -17,6 +17,7 @@ package org.apache.ibatis.scripting.xmltags;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import ognl.Ognl;
 import ognl.OgnlException;
@@ -25,6 +26,9 @@ import org.apache.ibatis.builder.BuilderException;
 
 /**
  * Caches OGNL parsed expressions.
+ * <p>
+ * An expression is also compiled by {@link CompiledExpression} when it is parsed, and the compiled form is evaluated
+ * instead. OGNL evaluates expressions which are not compiled.
  *
  * @author Eduardo Macarron
  *
@@ -34,7 +38,7 @@ public final class OgnlCache {
 
   private static final OgnlMemberAccess MEMBER_ACCESS = new OgnlMemberAccess();
   private static final OgnlClassResolver CLASS_RESOLVER = new OgnlClassResolver();
-  private static final Map<String, Object> expressionCache = new ConcurrentHashMap<>();
+  private static final Map<String, ParsedExpression> expressionCache = new ConcurrentHashMap<>();
 
   private OgnlCache() {
     // Prevent Instantiation of Static Class
@@ -42,20 +46,65 @@ public final class OgnlCache {
 
   public static Object getValue(String expression, Object root) {
     try {
-      Map context = Ognl.createDefaultContext(root, MEMBER_ACCESS, CLASS_RESOLVER, null);
-      return Ognl.getValue(parseExpression(expression), context, root);
+      return parseExpression(expression).getValue(root);
     } catch (OgnlException e) {
       throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e, e);
     }
   }
 
-  private static Object parseExpression(String expression) throws OgnlException {
-    Object node = expressionCache.get(expression);
-    if (node == null) {
-      node = Ognl.parseExpression(expression);
-      expressionCache.put(expression, node);
+  /**
+   * Parses an expression once, e.g. when a mapper is loaded, so that evaluating it does not look it up again.
+   *
+   * @param expression
+   *          an expression
+   * @return a function which evaluates the expression against a root object. If the expression cannot be parsed, the
+   *         function throws the error when it is called, as {@link #getValue(String, Object)} does.
+   */
+  static Function<Object, Object> getEvaluator(String expression) {
+    ParsedExpression parsed;
+    try {
+      parsed = parseExpression(expression);
+    } catch (OgnlException e) {
+      return root -> getValue(expression, root);
+    }
+    return root -> {
+      try {
+        return parsed.getValue(root);
+      } catch (OgnlException e) {
+        throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e, e);
+      }
+    };
+  }
+
+  static Map createContext(Object root) {
+    return Ognl.createDefaultContext(root, MEMBER_ACCESS, CLASS_RESOLVER, null);
+  }
+
+  private static ParsedExpression parseExpression(String expression) throws OgnlException {
+    ParsedExpression parsed = expressionCache.get(expression);
+    if (parsed == null) {
+      Object node = Ognl.parseExpression(expression);
+      parsed = new ParsedExpression(node, CompiledExpression.compile(node));
+      expressionCache.put(expression, parsed);
+    }
+    return parsed;
+  }
+
+  private static final class ParsedExpression {
+    private final Object node;
+    private final CompiledExpression compiled;
+
+    ParsedExpression(Object node, CompiledExpression compiled) {
+      this.node = node;
+      this.compiled = compiled;
+    }
+
+    Object getValue(Object root) throws OgnlException {
+      if (compiled != null) {
+        return compiled.evaluate(root);
+      }
+      return Ognl.getValue(node, createContext(root), root);
     }
-    return node;
   }
 
 }
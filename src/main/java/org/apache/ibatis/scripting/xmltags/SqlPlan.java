@@ -0,0 +1,293 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * A tree of {@link SqlNode}s compiled into a flat list of steps when a {@link DynamicSqlSource} is built.
+ * <p>
+ * Mixed contents are flattened, and adjacent static texts are joined as the context would join them. Tests of
+ * <code>if</code> and <code>when</code> are parsed once, and the overrides, prefix and suffix of <code>trim</code>,
+ * <code>where</code> and <code>set</code> are prepared once. Rendering appends to a single {@link StringBuilder} which
+ * is reused by the thread, and <code>trim</code> works on its part of it instead of a context of its own.
+ * <p>
+ * Other nodes, e.g. <code>foreach</code>, <code>bind</code>, texts with <code>${}</code> or nodes of custom classes,
+ * are applied to the context as they are. The SQL is the same as the one built by applying the tree.
+ *
+ * @author qwefgh90
+ */
+final class SqlPlan {
+
+  private static final int MAX_REUSED_CAPACITY = 64 * 1024;
+  private static final ThreadLocal<StringBuilder[]> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder[1]);
+
+  private final Step[] steps;
+
+  private SqlPlan(Step[] steps) {
+    this.steps = steps;
+  }
+
+  /**
+   * @param rootSqlNode
+   *          the root of a tree
+   * @return a plan of the tree
+   */
+  static SqlPlan compile(SqlNode rootSqlNode) {
+    return new SqlPlan(compileSteps(rootSqlNode, true));
+  }
+
+  /**
+   * @param configuration
+   *          a configuration
+   * @param parameterObject
+   *          a parameter object
+   * @return a context which has the SQL and the bindings
+   */
+  DynamicContext render(Configuration configuration, Object parameterObject) {
+    StringBuilder[] buffers = BUFFERS.get();
+    StringBuilder buffer = buffers[0];
+    buffers[0] = null;  // a nested render, e.g. by a custom node, uses a buffer of its own
+    if (buffer == null) {
+      buffer = new StringBuilder(256);
+    }
+    try {
+      PlanContext context = new PlanContext(configuration, parameterObject, buffer);
+      renderAll(steps, context);
+      context.finish();
+      return context;
+    } finally {
+      if (buffer.capacity() <= MAX_REUSED_CAPACITY) {
+        buffer.setLength(0);
+        buffers[0] = buffer;
+      }
+    }
+  }
+
+  private static void renderAll(Step[] steps, PlanContext context) {
+    for (Step step : steps) {
+      step.render(context);
+    }
+  }
+
+  /**
+   * @param separated
+   *          true if texts are joined with a space, as the context of a statement does, or false if they are
+   *          concatenated, as <code>trim</code> does
+   */
+  private static Step[] compileSteps(SqlNode node, boolean separated) {
+    List<Step> steps = new ArrayList<>();
+    addSteps(steps, node, separated);
+    return steps.toArray(new Step[0]);
+  }
+
+  private static void addSteps(List<Step> steps, SqlNode node, boolean separated) {
+    Class<?> type = node.getClass();
+    if (type == MixedSqlNode.class) {
+      for (SqlNode child : ((MixedSqlNode) node).getContents()) {
+        addSteps(steps, child, separated);
+      }
+    } else if (type == StaticTextSqlNode.class) {
+      String text = ((StaticTextSqlNode) node).getText();
+      Step last = steps.isEmpty() ? null : steps.get(steps.size() - 1);
+      if (last instanceof TextStep) {
+        String previous = ((TextStep) last).text;
+        steps.set(steps.size() - 1, new TextStep(separated ? previous + " " + text : previous + text));
+      } else {
+        steps.add(new TextStep(text));
+      }
+    } else if (type == IfSqlNode.class) {
+      IfSqlNode ifSqlNode = (IfSqlNode) node;
+      steps.add(new IfStep(OgnlCache.getEvaluator(ifSqlNode.getTest()), compileSteps(ifSqlNode.getContents(), separated)));
+    } else if (type == ChooseSqlNode.class && isCompilable((ChooseSqlNode) node)) {
+      ChooseSqlNode chooseSqlNode = (ChooseSqlNode) node;
+      List<SqlNode> whens = chooseSqlNode.getIfSqlNodes();
+      IfStep[] whenSteps = new IfStep[whens.size()];
+      for (int i = 0; i < whenSteps.length; i++) {
+        IfSqlNode when = (IfSqlNode) whens.get(i);
+        whenSteps[i] = new IfStep(OgnlCache.getEvaluator(when.getTest()), compileSteps(when.getContents(), separated));
+      }
+      SqlNode otherwise = chooseSqlNode.getDefaultSqlNode();
+      steps.add(new ChooseStep(whenSteps, otherwise == null ? null : compileSteps(otherwise, separated)));
+    } else if (type == TrimSqlNode.class || type == WhereSqlNode.class || type == SetSqlNode.class) {
+      TrimSqlNode trimSqlNode = (TrimSqlNode) node;
+      steps.add(new TrimStep(trimSqlNode, compileSteps(trimSqlNode.getContents(), false)));
+    } else {
+      steps.add(new NodeStep(node));
+    }
+  }
+
+  private static boolean isCompilable(ChooseSqlNode node) {
+    for (SqlNode when : node.getIfSqlNodes()) {
+      if (when.getClass() != IfSqlNode.class) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private interface Step {
+    void render(PlanContext context);
+  }
+
+  private static final class TextStep implements Step {
+    private final String text;
+
+    TextStep(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public void render(PlanContext context) {
+      context.appendSql(text);
+    }
+  }
+
+  private static final class NodeStep implements Step {
+    private final SqlNode node;
+
+    NodeStep(SqlNode node) {
+      this.node = node;
+    }
+
+    @Override
+    public void render(PlanContext context) {
+      node.apply(context);
+    }
+  }
+
+  private static final class IfStep implements Step {
+    private final Function<Object, Object> test;
+    private final Step[] contents;
+
+    IfStep(Function<Object, Object> test, Step[] contents) {
+      this.test = test;
+      this.contents = contents;
+    }
+
+    @Override
+    public void render(PlanContext context) {
+      renderIf(context);
+    }
+
+    boolean renderIf(PlanContext context) {
+      if (ExpressionEvaluator.booleanValueOf(test.apply(context.getBindings()))) {
+        renderAll(contents, context);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static final class ChooseStep implements Step {
+    private final IfStep[] whens;
+    private final Step[] otherwise;
+
+    ChooseStep(IfStep[] whens, Step[] otherwise) {
+      this.whens = whens;
+      this.otherwise = otherwise;
+    }
+
+    @Override
+    public void render(PlanContext context) {
+      for (IfStep when : whens) {
+        if (when.renderIf(context)) {
+          return;
+        }
+      }
+      if (otherwise != null) {
+        renderAll(otherwise, context);
+      }
+    }
+  }
+
+  private static final class TrimStep implements Step {
+    private final TrimSqlNode node;
+    private final Step[] contents;
+
+    TrimStep(TrimSqlNode node, Step[] contents) {
+      this.node = node;
+      this.contents = contents;
+    }
+
+    @Override
+    public void render(PlanContext context) {
+      int start = context.beginPart();
+      boolean separated = context.separated;
+      context.separated = false;
+      try {
+        renderAll(contents, context);
+      } finally {
+        context.separated = separated;
+      }
+      context.endPart(start, node);
+    }
+  }
+
+  /**
+   * Appends texts to a buffer as {@link DynamicContext} joins them, i.e. with a space between texts of the statement
+   * and without one between texts of <code>trim</code>.
+   */
+  private static final class PlanContext extends DynamicContext {
+    private final StringBuilder buffer;
+    private boolean separated = true;
+    private boolean empty = true;
+    private String sql;
+
+    PlanContext(Configuration configuration, Object parameterObject, StringBuilder buffer) {
+      super(configuration, parameterObject);
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void appendSql(String sql) {
+      beginPart();
+      buffer.append(sql);
+    }
+
+    /**
+     * @return the start of a part which is appended as one text
+     */
+    int beginPart() {
+      if (separated) {
+        if (!empty) {
+          buffer.append(' ');
+        }
+        empty = false;
+      }
+      return buffer.length();
+    }
+
+    void endPart(int start, TrimSqlNode node) {
+      String trimmed = node.trim(buffer.substring(start));
+      buffer.setLength(start);
+      buffer.append(trimmed);
+    }
+
+    void finish() {
+      sql = buffer.toString().trim();
+    }
+
+    @Override
+    public String getSql() {
+      return sql != null ? sql : buffer.toString().trim();
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.parsing.GenericTokenParser;
+
+/**
+ * Works out which expressions reach string substitution (<code>${}</code>) in a tree of {@link SqlNode}s.
+ * <p>
+ * Expressions that refer to a foreach item or index are replaced by the collection expression of the foreach, and
+ * expressions that refer to a bind variable are replaced by the expressions of its value, so that every returned
+ * expression can be evaluated against the parameter object alone.
+ * <p>
+ * The lexical context of each <code>${}</code>, e.g. inside a string literal, is worked out from the text of its
+ * {@link TextSqlNode}.
+ *
+ * @author qwefgh90
+ */
+final class SubstitutionAnalyzer {
+
+  private static final Pattern IDENTIFIER = Pattern.compile("(?<![\\w$.@#'\"])[A-Za-z_$][\\w$]*");
+  private static final char PLACEHOLDER = '\u0000';
+
+  private final Map<String, Set<SubstitutionContext>> expressions = new LinkedHashMap<>();
+  private final Map<String, Set<String>> scope = new HashMap<>();
+  private boolean complete = true;
+
+  private SubstitutionAnalyzer() {
+  }
+
+  /**
+   * @param rootSqlNode
+   * @return expressions evaluated against the parameter object and lexical contexts where their values are
+   *         substituted, or null if the tree contains unknown nodes
+   */
+  static Map<String, Set<SubstitutionContext>> analyze(SqlNode rootSqlNode) {
+    SubstitutionAnalyzer analyzer = new SubstitutionAnalyzer();
+    analyzer.visit(rootSqlNode);
+    if (!analyzer.complete) {
+      return null;
+    }
+    Map<String, Set<SubstitutionContext>> result = new LinkedHashMap<>();
+    analyzer.expressions.forEach((expression, contexts) -> result.put(expression, Collections.unmodifiableSet(contexts)));
+    return Collections.unmodifiableMap(result);
+  }
+
+  private void visit(SqlNode node) {
+    if (node == null || node instanceof StaticTextSqlNode) {
+      return;
+    }
+    if (node instanceof MixedSqlNode) {
+      ((MixedSqlNode) node).getContents().forEach(this::visit);
+    } else if (node instanceof TextSqlNode) {
+      visitText(((TextSqlNode) node).getText());
+    } else if (node instanceof IfSqlNode) {
+      visit(((IfSqlNode) node).getContents());
+    } else if (node instanceof ChooseSqlNode) {
+      ChooseSqlNode choose = (ChooseSqlNode) node;
+      choose.getIfSqlNodes().forEach(this::visit);
+      visit(choose.getDefaultSqlNode());
+    } else if (node instanceof TrimSqlNode) {
+      visit(((TrimSqlNode) node).getContents());
+    } else if (node instanceof VarDeclSqlNode) {
+      VarDeclSqlNode bind = (VarDeclSqlNode) node;
+      scope.put(bind.getName(), resolve(bind.getExpression()));
+    } else if (node instanceof ForEachSqlNode) {
+      visitForEach((ForEachSqlNode) node);
+    } else {
+      complete = false;
+    }
+  }
+
+  private void visitText(String text) {
+    List<String> contents = new ArrayList<>();
+    GenericTokenParser parser = new GenericTokenParser("${", "}", content -> {
+      contents.add(TextSqlNode.expressionOf(content));
+      return String.valueOf(PLACEHOLDER);
+    });
+    List<SubstitutionContext> contexts = SubstitutionContext.contextsOf(parser.parse(text), PLACEHOLDER);
+    for (int i = 0; i < contents.size(); i++) {
+      SubstitutionContext context = i < contexts.size() ? contexts.get(i) : SubstitutionContext.CODE;
+      for (String expression : resolve(contents.get(i))) {
+        expressions.computeIfAbsent(expression, k -> EnumSet.noneOf(SubstitutionContext.class)).add(context);
+      }
+    }
+  }
+
+  private void visitForEach(ForEachSqlNode forEach) {
+    Set<String> collection = resolve(forEach.getCollectionExpression());
+    String[] names = { forEach.getItem(), forEach.getIndex() };
+    Map<String, Set<String>> hidden = new HashMap<>();
+    for (String name : names) {
+      if (name != null) {
+        hidden.put(name, scope.put(name, collection));
+      }
+    }
+    visit(forEach.getContents());
+    // item and index are removed from bindings after foreach
+    hidden.forEach((name, previous) -> {
+      if (previous == null) {
+        scope.remove(name);
+      } else {
+        scope.put(name, previous);
+      }
+    });
+  }
+
+  private Set<String> resolve(String expression) {
+    Set<String> scoped = new LinkedHashSet<>();
+    Set<String> roots = new LinkedHashSet<>();
+    Matcher matcher = IDENTIFIER.matcher(expression);
+    while (matcher.find()) {
+      String identifier = matcher.group();
+      if (scope.containsKey(identifier)) {
+        scoped.addAll(scope.get(identifier));
+      } else {
+        roots.add(identifier);
+      }
+    }
+    if (scoped.isEmpty()) {
+      return Collections.singleton(expression.trim());
+    }
+    scoped.addAll(roots);
+    return scoped;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A lexical context where a value of <code>${}</code> is substituted, e.g. <code>${name}</code> in
+ * <code>where name = '${name}'</code> is in a string.
+ *
+ * @author qwefgh90
+ * @see DynamicSqlSource#getSubstitutionContexts()
+ */
+public enum SubstitutionContext {
+  CODE(0), STRING('\''), QUOTED_IDENTIFIER('"'), BACKTICK_IDENTIFIER('`'), LINE_COMMENT(0), BLOCK_COMMENT(0);
+
+  private final char quote;
+
+  SubstitutionContext(int quote) {
+    this.quote = (char) quote;
+  }
+
+  /**
+   * @return a quote which closes the context, or 0 if the context is not quoted
+   */
+  public char getQuote() {
+    return quote;
+  }
+
+  /**
+   * Finds lexical contexts of markers in a text, e.g. contexts of <code>${}</code> replaced by a marker. The text
+   * starts in {@link #CODE}.
+   *
+   * @param text
+   *          a text of SQL
+   * @param marker
+   *          a character which does not appear in the text otherwise
+   * @return a context for each marker in order
+   */
+  public static List<SubstitutionContext> contextsOf(String text, char marker) {
+    List<SubstitutionContext> contexts = new ArrayList<>();
+    SubstitutionContext context = CODE;
+    for (int i = 0, length = text.length(); i < length; i++) {
+      char c = text.charAt(i);
+      char next = i + 1 < length ? text.charAt(i + 1) : 0;
+      if (c == marker) {
+        contexts.add(context);
+        continue;
+      }
+      switch (context) {
+        case CODE:
+          if (c == '\'') {
+            context = STRING;
+          } else if (c == '"') {
+            context = QUOTED_IDENTIFIER;
+          } else if (c == '`') {
+            context = BACKTICK_IDENTIFIER;
+          } else if (c == '-' && next == '-' || c == '#' && next != '{') {  // #{} is a parameter in mybatis
+            context = LINE_COMMENT;
+          } else if (c == '/' && next == '*') {
+            context = BLOCK_COMMENT;
+            i++;
+          }
+          break;
+        case STRING:
+        case QUOTED_IDENTIFIER:
+        case BACKTICK_IDENTIFIER:
+          if (c == context.quote) {
+            if (next == c) {
+              i++;
+            } else {
+              context = CODE;
+            }
+          }
+          break;
+        case LINE_COMMENT:
+          if (c == '\n') {
+            context = CODE;
+          }
+          break;
+        default:
+          if (c == '*' && next == '/') {
+            context = CODE;
+            i++;
+          }
+          break;
+      }
+    }
+    return contexts;
+  }
+}
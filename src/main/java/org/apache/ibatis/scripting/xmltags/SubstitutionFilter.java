@@ -0,0 +1,55 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.regex.Pattern;
+
+/**
+ * A filter of values substituted for <code>${}</code>, which is declared by a statement, e.g.
+ * <code>substitutionPattern="[a-z_]+"</code>, or by a token, e.g. <code>${orderBy,pattern=[a-z_]+}</code>.
+ * A value which is not accepted is rejected with a {@link org.apache.ibatis.scripting.ScriptingException}.
+ *
+ * @author qwefgh90
+ * @see SubstitutionFilterFactory
+ */
+public interface SubstitutionFilter {
+
+  boolean isValid(String value);
+
+  /**
+   * @return a description used in error messages, e.g. <code>regex [a-z_]+</code>
+   */
+  String getDescription();
+
+  /**
+   * @param pattern
+   *          a regular expression which a value must match entirely
+   * @return a filter of the pattern
+   */
+  static SubstitutionFilter pattern(Pattern pattern) {
+    return new SubstitutionFilter() {
+      @Override
+      public boolean isValid(String value) {
+        return pattern.matcher(value).matches();
+      }
+
+      @Override
+      public String getDescription() {
+        return "regex " + pattern.pattern();
+      }
+    };
+  }
+}
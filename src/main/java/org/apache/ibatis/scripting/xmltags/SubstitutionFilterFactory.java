@@ -0,0 +1,35 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+/**
+ * Creates {@link SubstitutionFilter}s from declarations of statements and tokens when mappers are built. It is set
+ * with the <code>substitutionFilterFactory</code> setting.
+ *
+ * @author qwefgh90
+ * @see DefaultSubstitutionFilterFactory
+ */
+public interface SubstitutionFilterFactory {
+
+  /**
+   * @param allowLists
+   *          comma separated names of allow-lists, or null
+   * @param regex
+   *          a regular expression, or null
+   * @return a filter which requires both, or null if nothing is declared
+   */
+  SubstitutionFilter create(String allowLists, String regex);
+}
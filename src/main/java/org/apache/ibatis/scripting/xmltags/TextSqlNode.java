@@ -15,7 +15,14 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.parsing.TokenHandler;
@@ -23,22 +30,67 @@ import org.apache.ibatis.scripting.ScriptingException;
 import org.apache.ibatis.type.SimpleTypeRegistry;
 
 /**
+ * A text which contains <code>${}</code>.
+ * <p>
+ * A token can declare its own filter after the expression, e.g. <code>${orderBy,allowList=columns}</code> or
+ * <code>${direction,pattern=asc|desc}</code>. Filters are created once by a {@link SubstitutionFilterFactory} when
+ * the node is created, and a token without one is validated by the injection filter of the node, if any.
+ * <p>
+ * A token ends at the first <code>}</code> which is not escaped, so a <code>}</code> in a pattern must be written as
+ * <code>\}</code>, e.g. <code>${direction,pattern=[a-z]{1,4\}}</code>. A pattern which is cut by an unescaped
+ * <code>}</code>, or which is not a valid regular expression, is rejected when the node is created.
+ * <p>
+ * The text is split into static parts and tokens once when the node is created, so applying the node does not parse
+ * the text again.
+ *
  * @author Clinton Begin
  */
 public class TextSqlNode implements SqlNode {
+  private static final Pattern TOKEN_OPTION = Pattern.compile(",\\s*(allowList|pattern)\\s*=");
+  private static final char TOKEN_MARKER = '\u0000';
+
   private final String text;
-  private final Pattern injectionFilter;
+  private final SubstitutionFilter injectionFilter;
+  // tokens which declare filters, by the content of a token
+  private final Map<String, Substitution> substitutions;
+  // static parts around tokens, which has one more element than tokens, or null if the text is parsed on every call
+  private final String[] staticParts;
+  private final String[] tokens;
 
   public TextSqlNode(String text) {
-    this(text, null);
+    this(text, (SubstitutionFilter) null);
   }
 
   public TextSqlNode(String text, Pattern injectionFilter) {
+    this(text, injectionFilter == null ? null : SubstitutionFilter.pattern(injectionFilter));
+  }
+
+  public TextSqlNode(String text, SubstitutionFilter injectionFilter) {
+    this(text, injectionFilter, new DefaultSubstitutionFilterFactory());
+  }
+
+  public TextSqlNode(String text, SubstitutionFilter injectionFilter, SubstitutionFilterFactory filterFactory) {
     this.text = text;
     this.injectionFilter = injectionFilter;
+    this.substitutions = parseSubstitutions(text, filterFactory);
+    if (text.indexOf(TOKEN_MARKER) < 0) {
+      List<String> contents = new ArrayList<>();
+      String marked = createParser(content -> {
+        contents.add(content);
+        return String.valueOf(TOKEN_MARKER);
+      }).parse(text);
+      this.staticParts = marked.split(String.valueOf(TOKEN_MARKER), -1);
+      this.tokens = contents.toArray(new String[0]);
+    } else {
+      this.staticParts = null;
+      this.tokens = null;
+    }
   }
 
   public boolean isDynamic() {
+    if (tokens != null) {
+      return tokens.length > 0;
+    }
     DynamicCheckerTokenParser checker = new DynamicCheckerTokenParser();
     GenericTokenParser parser = createParser(checker);
     parser.parse(text);
@@ -47,23 +99,120 @@ public class TextSqlNode implements SqlNode {
 
   @Override
   public boolean apply(DynamicContext context) {
-    GenericTokenParser parser = createParser(new BindingTokenParser(context, injectionFilter));
-    context.appendSql(parser.parse(text));
+    BindingTokenParser handler = new BindingTokenParser(context, injectionFilter, substitutions);
+    if (tokens == null) {
+      context.appendSql(createParser(handler).parse(text));
+      return true;
+    }
+    StringBuilder builder = new StringBuilder(text.length());
+    builder.append(staticParts[0]);
+    for (int i = 0; i < tokens.length; i++) {
+      builder.append(handler.handleToken(tokens[i])).append(staticParts[i + 1]);
+    }
+    context.appendSql(builder.toString());
     return true;
   }
 
-  private GenericTokenParser createParser(TokenHandler handler) {
+  private static GenericTokenParser createParser(TokenHandler handler) {
     return new GenericTokenParser("${", "}", handler);
   }
 
+  String getText() {
+    return text;
+  }
+
+  /**
+   * @param content the content of a token
+   * @return the expression of a token without filters
+   */
+  static String expressionOf(String content) {
+    Matcher matcher = TOKEN_OPTION.matcher(content);
+    return matcher.find() ? content.substring(0, matcher.start()).trim() : content;
+  }
+
+  private static Map<String, Substitution> parseSubstitutions(String text, SubstitutionFilterFactory filterFactory) {
+    Map<String, Substitution> substitutions = new HashMap<>();
+    createParser(content -> {
+      Matcher matcher = TOKEN_OPTION.matcher(content);
+      if (matcher.find() && !substitutions.containsKey(content)) {
+        substitutions.put(content, parseSubstitution(content, matcher, filterFactory));
+      }
+      return "";
+    }).parse(text);
+    return substitutions.isEmpty() ? Collections.emptyMap() : substitutions;
+  }
+
+  private static Substitution parseSubstitution(String content, Matcher matcher,
+      SubstitutionFilterFactory filterFactory) {
+    String expression = content.substring(0, matcher.start()).trim();
+    StringBuilder allowLists = new StringBuilder();
+    String regex = null;
+    boolean found = true;
+    while (found) {
+      String option = matcher.group(1);
+      int valueStart = matcher.end();
+      found = matcher.find();
+      String value = content.substring(valueStart, found ? matcher.start() : content.length()).trim();
+      if ("allowList".equals(option)) {
+        allowLists.append(allowLists.length() == 0 ? "" : ",").append(value.replace('|', ','));
+      } else if (regex == null) {
+        regex = value;
+      } else {
+        throw new ScriptingException("A pattern is declared more than once in ${" + content + "}");
+      }
+    }
+    if (regex != null && hasUnclosedBrace(regex)) {
+      throw new ScriptingException("The pattern in ${" + content + "} has an unclosed '{'. Escape '}' in a pattern as '\\}'");
+    }
+    try {
+      return new Substitution(expression, filterFactory.create(allowLists.toString(), regex));
+    } catch (PatternSyntaxException e) {
+      throw new ScriptingException("Invalid pattern in ${" + content + "}. Cause: " + e, e);
+    }
+  }
+
+  // a quantifier like {1,4} is cut by the first '}' which is not escaped
+  private static boolean hasUnclosedBrace(String regex) {
+    int open = 0;
+    boolean inClass = false;
+    for (int i = 0; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '[') {
+        inClass = true;
+      } else if (c == ']') {
+        inClass = false;
+      } else if (!inClass && c == '{') {
+        open++;
+      } else if (!inClass && c == '}' && open > 0) {
+        open--;
+      }
+    }
+    return open > 0;
+  }
+
+  private static class Substitution {
+    final String expression;
+    final SubstitutionFilter filter;
+
+    Substitution(String expression, SubstitutionFilter filter) {
+      this.expression = expression;
+      this.filter = filter;
+    }
+  }
+
   private static class BindingTokenParser implements TokenHandler {
 
     private DynamicContext context;
-    private Pattern injectionFilter;
+    private SubstitutionFilter injectionFilter;
+    private Map<String, Substitution> substitutions;
 
-    public BindingTokenParser(DynamicContext context, Pattern injectionFilter) {
+    public BindingTokenParser(DynamicContext context, SubstitutionFilter injectionFilter,
+        Map<String, Substitution> substitutions) {
       this.context = context;
       this.injectionFilter = injectionFilter;
+      this.substitutions = substitutions;
     }
 
     @Override
@@ -74,15 +223,17 @@ public class TextSqlNode implements SqlNode {
       } else if (SimpleTypeRegistry.isSimpleType(parameter.getClass())) {
         context.getBindings().put("value", parameter);
       }
-      Object value = OgnlCache.getValue(content, context.getBindings());
+      Substitution substitution = substitutions.get(content);
+      String expression = substitution == null ? content : substitution.expression;
+      Object value = OgnlCache.getValue(expression, context.getBindings());
       String srtValue = value == null ? "" : String.valueOf(value); // issue #274 return "" instead of "null"
-      checkInjection(srtValue);
+      checkInjection(srtValue, substitution == null ? injectionFilter : substitution.filter);
       return srtValue;
     }
 
-    private void checkInjection(String value) {
-      if (injectionFilter != null && !injectionFilter.matcher(value).matches()) {
-        throw new ScriptingException("Invalid input. Please conform to regex" + injectionFilter.pattern());
+    private void checkInjection(String value, SubstitutionFilter filter) {
+      if (filter != null && !filter.isValid(value)) {
+        throw new ScriptingException("Invalid input. Please conform to " + filter.getDescription());
       }
     }
   }
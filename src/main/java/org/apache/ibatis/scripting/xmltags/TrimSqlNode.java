@@ -35,6 +35,11 @@ public class TrimSqlNode implements SqlNode {
   private final List<String> prefixesToOverride;
   private final List<String> suffixesToOverride;
   private final Configuration configuration;
+  // prepared once, so applying the node does not trim overrides or concatenate the prefix and the suffix again
+  private final String[] trimmedPrefixesToOverride;
+  private final String[] trimmedSuffixesToOverride;
+  private final String prefixToInsert;
+  private final String suffixToAppend;
 
   public TrimSqlNode(Configuration configuration, SqlNode contents, String prefix, String prefixesToOverride, String suffix, String suffixesToOverride) {
     this(configuration, contents, prefix, parseOverrides(prefixesToOverride), suffix, parseOverrides(suffixesToOverride));
@@ -47,6 +52,10 @@ public class TrimSqlNode implements SqlNode {
     this.suffix = suffix;
     this.suffixesToOverride = suffixesToOverride;
     this.configuration = configuration;
+    this.trimmedPrefixesToOverride = trimAll(prefixesToOverride);
+    this.trimmedSuffixesToOverride = trimAll(suffixesToOverride);
+    this.prefixToInsert = prefix == null ? null : prefix + " ";
+    this.suffixToAppend = suffix == null ? null : " " + suffix;
   }
 
   @Override
@@ -57,6 +66,70 @@ public class TrimSqlNode implements SqlNode {
     return result;
   }
 
+  /**
+   * Trims the SQL of the contents, removes a prefix and a suffix to override, and adds the prefix and the suffix.
+   *
+   * @param sql
+   *          the SQL built by the contents
+   * @return the SQL to append
+   */
+  String trim(String sql) {
+    String trimmedSql = sql.trim();
+    if (trimmedSql.isEmpty()) {
+      return trimmedSql;
+    }
+    StringBuilder builder = new StringBuilder(trimmedSql);
+    applyPrefix(builder, trimmedSql);
+    applySuffix(builder, trimmedSql);
+    return builder.toString();
+  }
+
+  // overrides are in uppercase, so they are compared ignoring case instead of converting the whole SQL
+  private void applyPrefix(StringBuilder sql, String trimmedSql) {
+    if (prefixesToOverride != null) {
+      for (int i = 0; i < trimmedPrefixesToOverride.length; i++) {
+        String toRemove = prefixesToOverride.get(i);
+        if (trimmedSql.regionMatches(true, 0, toRemove, 0, toRemove.length())) {
+          sql.delete(0, trimmedPrefixesToOverride[i].length());
+          break;
+        }
+      }
+    }
+    if (prefixToInsert != null) {
+      sql.insert(0, prefixToInsert);
+    }
+  }
+
+  private void applySuffix(StringBuilder sql, String trimmedSql) {
+    if (suffixesToOverride != null) {
+      for (int i = 0; i < trimmedSuffixesToOverride.length; i++) {
+        String toRemove = trimmedSuffixesToOverride[i];
+        if (endsWithIgnoreCase(trimmedSql, suffixesToOverride.get(i)) || endsWithIgnoreCase(trimmedSql, toRemove)) {
+          sql.delete(sql.length() - toRemove.length(), sql.length());
+          break;
+        }
+      }
+    }
+    if (suffixToAppend != null) {
+      sql.append(suffixToAppend);
+    }
+  }
+
+  private static boolean endsWithIgnoreCase(String sql, String suffix) {
+    return sql.regionMatches(true, sql.length() - suffix.length(), suffix, 0, suffix.length());
+  }
+
+  private static String[] trimAll(List<String> overrides) {
+    if (overrides == null) {
+      return null;
+    }
+    String[] trimmed = new String[overrides.size()];
+    for (int i = 0; i < trimmed.length; i++) {
+      trimmed[i] = overrides.get(i).trim();
+    }
+    return trimmed;
+  }
+
   private static List<String> parseOverrides(String overrides) {
     if (overrides != null) {
       final StringTokenizer parser = new StringTokenizer(overrides, "|", false);
@@ -69,28 +142,22 @@ public class TrimSqlNode implements SqlNode {
     return Collections.emptyList();
   }
 
+  SqlNode getContents() {
+    return contents;
+  }
+
   private class FilteredDynamicContext extends DynamicContext {
     private DynamicContext delegate;
-    private boolean prefixApplied;
-    private boolean suffixApplied;
     private StringBuilder sqlBuffer;
 
     public FilteredDynamicContext(DynamicContext delegate) {
       super(configuration, null);
       this.delegate = delegate;
-      this.prefixApplied = false;
-      this.suffixApplied = false;
       this.sqlBuffer = new StringBuilder();
     }
 
     public void applyAll() {
-      sqlBuffer = new StringBuilder(sqlBuffer.toString().trim());
-      String trimmedUppercaseSql = sqlBuffer.toString().toUpperCase(Locale.ENGLISH);
-      if (trimmedUppercaseSql.length() > 0) {
-        applyPrefix(sqlBuffer, trimmedUppercaseSql);
-        applySuffix(sqlBuffer, trimmedUppercaseSql);
-      }
-      delegate.appendSql(sqlBuffer.toString());
+      delegate.appendSql(trim(sqlBuffer.toString()));
     }
 
     @Override
@@ -118,44 +185,6 @@ public class TrimSqlNode implements SqlNode {
       return delegate.getSql();
     }
 
-    private void applyPrefix(StringBuilder sql, String trimmedUppercaseSql) {
-      if (!prefixApplied) {
-        prefixApplied = true;
-        if (prefixesToOverride != null) {
-          for (String toRemove : prefixesToOverride) {
-            if (trimmedUppercaseSql.startsWith(toRemove)) {
-              sql.delete(0, toRemove.trim().length());
-              break;
-            }
-          }
-        }
-        if (prefix != null) {
-          sql.insert(0, " ");
-          sql.insert(0, prefix);
-        }
-      }
-    }
-
-    private void applySuffix(StringBuilder sql, String trimmedUppercaseSql) {
-      if (!suffixApplied) {
-        suffixApplied = true;
-        if (suffixesToOverride != null) {
-          for (String toRemove : suffixesToOverride) {
-            if (trimmedUppercaseSql.endsWith(toRemove) || trimmedUppercaseSql.endsWith(toRemove.trim())) {
-              int start = sql.length() - toRemove.trim().length();
-              int end = sql.length();
-              sql.delete(start, end);
-              break;
-            }
-          }
-        }
-        if (suffix != null) {
-          sql.append(" ");
-          sql.append(suffix);
-        }
-      }
-    }
-
   }
 
 }
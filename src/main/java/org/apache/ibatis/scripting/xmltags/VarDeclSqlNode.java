@@ -35,4 +35,11 @@ public class VarDeclSqlNode implements SqlNode {
     return true;
   }
 
+  String getName() {
+    return name;
+  }
+
+  String getExpression() {
+    return expression;
+  }
 }
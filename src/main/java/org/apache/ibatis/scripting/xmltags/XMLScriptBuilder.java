@@ -37,7 +37,10 @@ public class XMLScriptBuilder extends BaseBuilder {
   private final XNode context;
   private boolean isDynamic;
   private final Class<?> parameterType;
+  private final SubstitutionFilter injectionFilter;
   private final Map<String, NodeHandler> nodeHandlerMap = new HashMap<>();
+  // a separator which DynamicContext puts between texts of the current element, or null if texts are kept apart
+  private String textSeparator = " ";
 
   public XMLScriptBuilder(Configuration configuration, XNode context) {
     this(configuration, context, null);
@@ -47,6 +50,8 @@ public class XMLScriptBuilder extends BaseBuilder {
     super(configuration);
     this.context = context;
     this.parameterType = parameterType;
+    this.injectionFilter = configuration.getSubstitutionFilterFactory().create(
+        context.getStringAttribute("substitutionAllowList"), context.getStringAttribute("substitutionPattern"));
     initNodeHandlerMap();
   }
 
@@ -81,10 +86,15 @@ public class XMLScriptBuilder extends BaseBuilder {
       XNode child = node.newXNode(children.item(i));
       if (child.getNode().getNodeType() == Node.CDATA_SECTION_NODE || child.getNode().getNodeType() == Node.TEXT_NODE) {
         String data = child.getStringBody("");
-        TextSqlNode textSqlNode = new TextSqlNode(data);
+        TextSqlNode textSqlNode = new TextSqlNode(data, injectionFilter, configuration.getSubstitutionFilterFactory());
         if (textSqlNode.isDynamic()) {
           contents.add(textSqlNode);
           isDynamic = true;
+        } else if (textSeparator != null && !contents.isEmpty()
+            && contents.get(contents.size() - 1) instanceof StaticTextSqlNode) {
+          // e.g. texts around a comment or an included fragment are appended as one
+          StaticTextSqlNode previous = (StaticTextSqlNode) contents.remove(contents.size() - 1);
+          contents.add(new StaticTextSqlNode(previous.getText() + textSeparator + data));
         } else {
           contents.add(new StaticTextSqlNode(data));
         }
@@ -101,6 +111,23 @@ public class XMLScriptBuilder extends BaseBuilder {
     return new MixedSqlNode(contents);
   }
 
+  /**
+   * Parses the children of an element which appends texts to a context with a different separator.
+   *
+   * @param node an element
+   * @param separator a separator between appended texts, e.g. an empty string in a trim, or null in a foreach
+   *          whose context treats each text differently
+   */
+  private MixedSqlNode parseDynamicTags(XNode node, String separator) {
+    String parentSeparator = textSeparator;
+    textSeparator = separator;
+    try {
+      return parseDynamicTags(node);
+    } finally {
+      textSeparator = parentSeparator;
+    }
+  }
+
   private interface NodeHandler {
     void handleNode(XNode nodeToHandle, List<SqlNode> targetContents);
   }
@@ -126,7 +153,7 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
+      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle, "");
       String prefix = nodeToHandle.getStringAttribute("prefix");
       String prefixOverrides = nodeToHandle.getStringAttribute("prefixOverrides");
       String suffix = nodeToHandle.getStringAttribute("suffix");
@@ -143,7 +170,7 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
+      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle, "");
       WhereSqlNode where = new WhereSqlNode(configuration, mixedSqlNode);
       targetContents.add(where);
     }
@@ -156,7 +183,7 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
+      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle, "");
       SetSqlNode set = new SetSqlNode(configuration, mixedSqlNode);
       targetContents.add(set);
     }
@@ -169,7 +196,7 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
+      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle, null);
       String collection = nodeToHandle.getStringAttribute("collection");
       Boolean nullable = nodeToHandle.getBooleanAttribute("nullable");
       String item = nodeToHandle.getStringAttribute("item");
@@ -52,6 +52,7 @@ import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.AutoMappingCache;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -86,6 +87,8 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.DefaultSubstitutionFilterFactory;
+import org.apache.ibatis.scripting.xmltags.SubstitutionFilterFactory;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
@@ -95,6 +98,7 @@ import org.apache.ibatis.type.TypeAliasRegistry;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
+
 /**
  * @author Clinton Begin
  */
@@ -116,6 +120,9 @@ public class Configuration {
   protected boolean shrinkWhitespacesInSql;
   protected boolean nullableOnForEach;
   protected boolean argNameBasedConstructorAutoMapping;
+  protected int dynamicSqlCacheSize;
+  protected boolean positionalForEachBinding;
+  protected boolean nestedCursorStreamingEnabled;
 
   protected String logPrefix;
   protected Class<? extends Log> logImpl;
@@ -148,11 +155,15 @@ public class Configuration {
    */
   protected Class<?> configurationFactory;
 
+  protected SqlInjectionDetector sqlInjectionDetector;
+  protected SubstitutionFilterFactory substitutionFilterFactory = new DefaultSubstitutionFilterFactory();
+
   protected final MapperRegistry mapperRegistry = new MapperRegistry(this);
   protected final InterceptorChain interceptorChain = new InterceptorChain();
   protected final TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistry(this);
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
   protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
+  protected final AutoMappingCache autoMappingCache = new AutoMappingCache();
 
   protected final Map<String, MappedStatement> mappedStatements = new StrictMap<MappedStatement>("Mapped Statements collection")
       .conflictMessageProducer((savedValue, targetValue) ->
@@ -299,6 +310,97 @@ public class Configuration {
     this.shrinkWhitespacesInSql = shrinkWhitespacesInSql;
   }
 
+  /**
+   * Gets the maximum number of parsed SQL kept by each dynamic statement.
+   *
+   * @return the size of the cache, or 0 if the cache is disabled
+   */
+  public int getDynamicSqlCacheSize() {
+    return dynamicSqlCacheSize;
+  }
+
+  /**
+   * Sets the maximum number of parsed SQL kept by each dynamic statement. When generated SQL and types of
+   * parameters are the same as a previous call, <code>#{}</code> are not parsed again. It applies to statements which
+   * are built after this is set.
+   *
+   * @param dynamicSqlCacheSize
+   *          the size of the cache. The least recently used SQL is evicted. 0 (default) disables the cache.
+   */
+  public void setDynamicSqlCacheSize(int dynamicSqlCacheSize) {
+    this.dynamicSqlCacheSize = dynamicSqlCacheSize;
+  }
+
+  /**
+   * Returns whether a 'foreach' tag whose body is a single <code>#{item}</code> binds its items to one list.
+   *
+   * @return If positional, {@code true}
+   */
+  public boolean isPositionalForEachBinding() {
+    return positionalForEachBinding;
+  }
+
+  /**
+   * Sets whether a 'foreach' tag whose body is a static text with a single <code>#{item}</code>, e.g.
+   * <code>id in (#{id})</code>, binds its items to one list and refers to them by position, e.g.
+   * <code>#{__frch_id_0[2]}</code>, instead of binding each item to its own name. It saves a binding and a parse of the
+   * body per item in large <code>IN</code> lists. The generated SQL is the same except the names of parameters.
+   *
+   * @param positionalForEachBinding
+   *          If positional, set to {@code true}. Default is {@code false}.
+   */
+  public void setPositionalForEachBinding(boolean positionalForEachBinding) {
+    this.positionalForEachBinding = positionalForEachBinding;
+  }
+
+  /**
+   * Gets the maximum number of automatic mappings and column names kept for column layouts of result sets.
+   *
+   * @return the size of the cache, or 0 if the cache is disabled
+   */
+  public int getAutoMappingCacheSize() {
+    return autoMappingCache.getMaxSize();
+  }
+
+  /**
+   * Sets the maximum number of automatic mappings and column names kept for column layouts of result sets. When a
+   * result set has the same columns as a previous one, mapped columns and properties of unmapped columns are not
+   * resolved again. Automatic mappings are shared only if {@link #getAutoMappingUnknownColumnBehavior()} is
+   * {@link AutoMappingUnknownColumnBehavior#NONE}.
+   *
+   * @param autoMappingCacheSize
+   *          the size of the cache. Layouts are not cached once it is full. 0 (default) disables the cache.
+   */
+  public void setAutoMappingCacheSize(int autoMappingCacheSize) {
+    autoMappingCache.setMaxSize(autoMappingCacheSize);
+  }
+
+  public AutoMappingCache getAutoMappingCache() {
+    return autoMappingCache;
+  }
+
+  /**
+   * Returns whether a cursor streams results of nested result maps as if statements are ordered.
+   *
+   * @return If streamed, {@code true}
+   */
+  public boolean isNestedCursorStreamingEnabled() {
+    return nestedCursorStreamingEnabled;
+  }
+
+  /**
+   * Sets whether a {@link org.apache.ibatis.cursor.Cursor} streams results of nested result maps as if statements
+   * have <code>resultOrdered="true"</code>, i.e. rows of a result are assumed to be adjacent. Each result is returned
+   * once a row of the next one is read, and values kept to merge its rows are dropped, so memory does not grow with
+   * the number of results.
+   *
+   * @param nestedCursorStreamingEnabled
+   *          If streamed, set to {@code true}. Default is {@code false}.
+   */
+  public void setNestedCursorStreamingEnabled(boolean nestedCursorStreamingEnabled) {
+    this.nestedCursorStreamingEnabled = nestedCursorStreamingEnabled;
+  }
+
   /**
    * Sets the default value of 'nullable' attribute on 'foreach' tag.
    *
@@ -309,6 +411,47 @@ public class Configuration {
     this.nullableOnForEach = nullableOnForEach;
   }
 
+  /**
+   * Gets the detector used by {@link org.apache.ibatis.session.SqlSession#checkSQLInjection(String, Object)}.
+   *
+   * @return the detector, or null if statements are not checked
+   */
+  public SqlInjectionDetector getSqlInjectionDetector() {
+    return sqlInjectionDetector;
+  }
+
+  /**
+   * Sets the detector used by {@link org.apache.ibatis.session.SqlSession#checkSQLInjection(String, Object)}.
+   *
+   * @param sqlInjectionDetector
+   *          the detector, or null not to check statements
+   */
+  public void setSqlInjectionDetector(SqlInjectionDetector sqlInjectionDetector) {
+    this.sqlInjectionDetector = sqlInjectionDetector;
+  }
+
+  /**
+   * Gets the factory of filters declared for <code>${}</code> by statements and tokens.
+   *
+   * @return the factory
+   */
+  public SubstitutionFilterFactory getSubstitutionFilterFactory() {
+    return substitutionFilterFactory;
+  }
+
+  /**
+   * Sets the factory of filters declared for <code>${}</code> by statements and tokens.
+   *
+   * @param substitutionFilterFactory
+   *          the factory. {@link DefaultSubstitutionFilterFactory} is used if null.
+   */
+  public void setSubstitutionFilterFactory(SubstitutionFilterFactory substitutionFilterFactory) {
+    if (substitutionFilterFactory == null) {
+      substitutionFilterFactory = new DefaultSubstitutionFilterFactory();
+    }
+    this.substitutionFilterFactory = substitutionFilterFactory;
+  }
+
   /**
    * Returns the default value of 'nullable' attribute on 'foreach' tag.
    *
@@ -0,0 +1,36 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Decides whether values substituted for <code>${}</code> in a statement are SQL injection. It is used by
+ * {@link SqlSession#checkSQLInjection(String, Object)} and set with the <code>sqlInjectionDetector</code> setting.
+ *
+ * @author qwefgh90
+ */
+public interface SqlInjectionDetector {
+
+  /**
+   * @param mappedStatement
+   *          a statement to check
+   * @param parameterObject
+   *          a parameter object which is passed to an executor
+   * @return true if a substituted value is SQL injection
+   */
+  boolean isInjection(MappedStatement mappedStatement, Object parameterObject);
+}
@@ -32,9 +32,14 @@ import org.apache.ibatis.executor.BatchResult;
 public interface SqlSession extends Closeable {
 
   /**
+   * Check if values substituted for <code>${}</code> in the statement contain SQL injection patterns.
+   * The check is delegated to {@link Configuration#getSqlInjectionDetector()}.
+   *
    * @param statement
+   *          Unique identifier matching the statement to check.
    * @param parameter
-   * @return
+   *          A parameter object to pass to the statement.
+   * @return true if the detector reports SQL injection, or false if no detector is configured
    */
   boolean checkSQLInjection(String statement, Object parameter);
 
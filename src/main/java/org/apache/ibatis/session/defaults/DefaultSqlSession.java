@@ -37,6 +37,7 @@ import org.apache.ibatis.reflection.ParamNameResolver;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlInjectionDetector;
 import org.apache.ibatis.session.SqlSession;
 
 /**
@@ -47,11 +48,6 @@ import org.apache.ibatis.session.SqlSession;
  */
 public class DefaultSqlSession implements SqlSession {
 
-  @Override
-  public boolean checkSQLInjection(String statement, Object parameter) {
-    return false;
-  }
-
   private final Configuration configuration;
   private final Executor executor;
 
@@ -70,6 +66,22 @@ public class DefaultSqlSession implements SqlSession {
     this(configuration, executor, false);
   }
 
+  @Override
+  public boolean checkSQLInjection(String statement, Object parameter) {
+    SqlInjectionDetector detector = configuration.getSqlInjectionDetector();
+    if (detector == null) {
+      return false;
+    }
+    try {
+      MappedStatement ms = configuration.getMappedStatement(statement);
+      return detector.isInjection(ms, wrapCollection(parameter));
+    } catch (Exception e) {
+      throw ExceptionFactory.wrapException("Error checking SQL injection.  Cause: " + e, e);
+    } finally {
+      ErrorContext.instance().reset();
+    }
+  }
+
   @Override
   public <T> T selectOne(String statement) {
     return this.selectOne(statement, null);
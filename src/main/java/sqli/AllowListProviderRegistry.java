@@ -1,14 +1,39 @@
 package sqli;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * A thread-safe registry of allow-list providers.
+ * <br>1. Each name is bound to a {@link ProviderHandle} once, and registering a provider again swaps the provider
+ * in the handle atomically. So allow-lists can be reloaded at runtime while requests are validated.
+ * <br>2. {@link #resolve(String...)} looks names up once and returns a reusable validator,
+ * which does no map lookups on hot paths and always sees the latest registered providers.
+ * <br>3. Regular expressions of resolved providers are merged, so a parameter is scanned once for all of them.
+ * The merged plan is rebuilt when a provider of it is registered again.
+ * <br>4. {@link #isValid(String, String...)} resolves each combination of names once and reuses it.
+ */
 public class AllowListProviderRegistry {
-  private static Map<String, AllowListProvider> providerMap = new HashMap<>();
+  private static final ConcurrentMap<String, ProviderHandle> handleMap = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<List<String>, AllowListProvider> resolvedMap = new ConcurrentHashMap<>();
 
   public static void register(String providerName, AllowListProvider provider){
-    providerMap.put(providerName, provider);
+    handleOf(providerName).provider = provider;
+  }
+
+  /**
+   * Remove a provider. Validators resolved before reject every parameter for the name until it is registered again.
+   * @param providerName a name of a provider
+   */
+  public static void unregister(String providerName){
+    ProviderHandle handle = handleMap.get(providerName);
+    if (handle != null)
+      handle.provider = null;
   }
 
   /**
@@ -20,10 +45,102 @@ public class AllowListProviderRegistry {
   public static boolean isValid(String param, String... providerNames){
     if(providerNames == null || providerNames.length == 0)
       throw new RuntimeException("There are no names provided.");
-    for(var providerName : providerNames) {
-      if (providerMap.containsKey(providerName) && providerMap.get(providerName).isValid(param))
-        return true;
+    AllowListProvider resolved = resolvedMap.get(Arrays.asList(providerNames));
+    if (resolved == null)
+      resolved = resolvedMap.computeIfAbsent(List.of(providerNames), names -> resolve(providerNames));
+    return resolved.isValid(param);
+  }
+
+  /**
+   * Resolve names into a validator which is valid if any of providers is valid.
+   * Names which have not been registered yet are resolved as well, and take effect once registered.
+   * @param providerNames a list of pattern providers
+   * @return a reusable validator
+   */
+  public static AllowListProvider resolve(String... providerNames){
+    if(providerNames == null || providerNames.length == 0)
+      throw new RuntimeException("There are no names provided.");
+    ProviderHandle[] handles = new ProviderHandle[providerNames.length];
+    for (int i = 0; i < providerNames.length; i++)
+      handles[i] = handleOf(providerNames[i]);
+    return handles.length == 1 ? handles[0] : new CompositeProvider(providerNames.clone(), handles);
+  }
+
+  private static ProviderHandle handleOf(String providerName){
+    return handleMap.computeIfAbsent(providerName, name -> new ProviderHandle());
+  }
+
+  static final class ProviderHandle implements AllowListProvider {
+    volatile AllowListProvider provider;
+
+    @Override
+    public boolean isValid(String param) {
+      AllowListProvider current = provider;
+      return current != null && current.isValid(param);
+    }
+  }
+
+  /**
+   * Regular expressions of {@link RegexAllowListProvider}s are merged into one {@link CompositeRegexAllowListProvider}.
+   * The merged plan is rebuilt when a provider is registered again.
+   */
+  static final class CompositeProvider implements AllowListProvider {
+    private final String[] names;
+    private final ProviderHandle[] handles;
+    private volatile MergedPlan plan;
+
+    CompositeProvider(String[] names, ProviderHandle[] handles) {
+      this.names = names;
+      this.handles = handles;
+    }
+
+    @Override
+    public boolean isValid(String param) {
+      MergedPlan current = plan;
+      if (current == null || !current.isCurrent(handles)) {
+        current = new MergedPlan(names, handles);
+        plan = current;
+      }
+      return current.isValid(param);
+    }
+  }
+
+  static final class MergedPlan {
+    private final AllowListProvider[] snapshot;
+    private final AllowListProvider[] providers;
+
+    MergedPlan(String[] names, ProviderHandle[] handles) {
+      snapshot = new AllowListProvider[handles.length];
+      Map<String, RegexAllowListProvider> regexProviders = new LinkedHashMap<>();
+      List<AllowListProvider> others = new ArrayList<>();
+      for (int i = 0; i < handles.length; i++) {
+        snapshot[i] = handles[i].provider;
+        if (snapshot[i] instanceof RegexAllowListProvider)
+          regexProviders.put(names[i], (RegexAllowListProvider) snapshot[i]);
+        else if (snapshot[i] != null)
+          others.add(snapshot[i]);
+      }
+      if (regexProviders.size() > 1)
+        others.add(0, CompositeRegexAllowListProvider.of(regexProviders));
+      else
+        others.addAll(0, regexProviders.values());
+      providers = others.toArray(new AllowListProvider[0]);
+    }
+
+    boolean isCurrent(ProviderHandle[] handles) {
+      for (int i = 0; i < handles.length; i++) {
+        if (handles[i].provider != snapshot[i])
+          return false;
+      }
+      return true;
+    }
+
+    boolean isValid(String param) {
+      for (AllowListProvider provider : providers) {
+        if (provider.isValid(param))
+          return true;
+      }
+      return false;
     }
-    return false;
   }
 }
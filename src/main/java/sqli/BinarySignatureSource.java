@@ -0,0 +1,36 @@
+package sqli;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * @author qwefgh90
+ * A precompiled automaton written by {@link SignatureMatcher#writeTo(Path)}.
+ * <br>The file is memory-mapped and read without normalizing signatures or building a trie again,
+ * which makes a cold start faster.
+ */
+public class BinarySignatureSource implements SignatureSource {
+
+  private final Path path;
+
+  public BinarySignatureSource(Path path) {
+    this.path = path;
+  }
+
+  @Override
+  public List<String> load() throws IOException {
+    return compile().getSignatures();
+  }
+
+  @Override
+  public SignatureMatcher compile() throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return SignatureMatcher.readFrom(buffer);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package sqli;
+
+import org.apache.ibatis.io.Resources;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author qwefgh90
+ * Signatures in resource files of the classpath. Each line is a signature.
+ */
+public class ClassPathSignatureSource implements SignatureSource {
+
+  private static final ClassPathSignatureSource DEFAULTS = new ClassPathSignatureSource("sqli/Generic_SQLI.txt",
+      "sqli/Generic_UnionSelect.txt");
+
+  private final String[] resources;
+
+  public ClassPathSignatureSource(String... resources) {
+    this.resources = resources.clone();
+  }
+
+  /**
+   * @return signatures bundled in this library
+   */
+  public static ClassPathSignatureSource defaults() {
+    return DEFAULTS;
+  }
+
+  @Override
+  public List<String> load() throws IOException {
+    List<String> signatures = new ArrayList<>();
+    for (String resource : resources) {
+      try (Reader reader = Resources.getResourceAsReader(resource)) {
+        readLines(reader, signatures);
+      }
+    }
+    return signatures;
+  }
+
+  static void readLines(Reader reader, List<String> signatures) throws IOException {
+    BufferedReader bufferedReader = new BufferedReader(reader);
+    String line = bufferedReader.readLine();
+    while (line != null) {
+      signatures.add(line.toLowerCase()); // to lowercase
+      line = bufferedReader.readLine();
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package sqli;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * An allow-list which merges several regular expressions into one alternation.
+ * <br>1. A parameter is matched once against <code>(?&lt;p0&gt;regex0)|(?&lt;p1&gt;regex1)|...</code>
+ * instead of running every pattern in turn.
+ * <br>2. A {@link Matcher} is reused per thread, so a call does not allocate a matcher.
+ * <br>3. The group which has matched tells which allow-list has accepted the parameter.
+ * <br>Patterns which cannot be merged safely (back references, named groups, LITERAL or CANON_EQ flags) are matched
+ * separately. If the merged expression still cannot be compiled, every pattern is matched separately.
+ * Either way, the first allow-list in order of priority which matches is reported.
+ */
+public class CompositeRegexAllowListProvider implements AllowListProvider {
+
+  private static final String GROUP_PREFIX = "allowList";
+  private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\[1-9]");
+  // a named group or a reference to it, whose name can clash with groups of other patterns
+  private static final Pattern NAMED_GROUP = Pattern.compile("\\(\\?<[a-zA-Z]|\\\\k<");
+
+  private final String[] mergedNames;
+  // the priority of each merged group, in ascending order
+  private final int[] mergedPriorities;
+  private final Pattern merged;
+  private final ThreadLocal<Matcher> matchers;
+  private final List<String> separateNames = new ArrayList<>();
+  private final List<Pattern> separatePatterns = new ArrayList<>();
+  private final List<Integer> separatePriorities = new ArrayList<>();
+
+  /**
+   * @param patterns names and patterns of allow-lists in order of priority
+   */
+  public CompositeRegexAllowListProvider(Map<String, Pattern> patterns) {
+    List<String> names = new ArrayList<>();
+    List<Integer> priorities = new ArrayList<>();
+    StringBuilder regex = new StringBuilder();
+    int priority = -1;
+    for (Map.Entry<String, Pattern> entry : patterns.entrySet()) {
+      priority++;
+      Pattern pattern = entry.getValue();
+      String flags = inlineFlags(pattern.flags());
+      if (flags == null || BACK_REFERENCE.matcher(pattern.pattern()).find()
+          || NAMED_GROUP.matcher(pattern.pattern()).find()) {
+        separateNames.add(entry.getKey());
+        separatePatterns.add(pattern);
+        separatePriorities.add(priority);
+        continue;
+      }
+      if (regex.length() > 0)
+        regex.append('|');
+      regex.append("(?<").append(GROUP_PREFIX).append(names.size()).append(">(?").append(flags).append(':')
+          .append(pattern.pattern());
+      if ((pattern.flags() & Pattern.COMMENTS) != 0)
+        regex.append('\n');   // terminate a trailing comment
+      regex.append("))");
+      names.add(entry.getKey());
+      priorities.add(priority);
+    }
+    Pattern compiled = null;
+    if (!names.isEmpty()) {
+      try {
+        compiled = Pattern.compile(regex.toString());
+      } catch (PatternSyntaxException e) {
+        // match them separately in order of priority
+        separateNames.clear();
+        separatePatterns.clear();
+        separatePriorities.clear();
+        patterns.forEach((name, pattern) -> {
+          separatePriorities.add(separateNames.size());
+          separateNames.add(name);
+          separatePatterns.add(pattern);
+        });
+        names.clear();
+        priorities.clear();
+      }
+    }
+    this.mergedNames = names.toArray(new String[0]);
+    this.mergedPriorities = priorities.stream().mapToInt(Integer::intValue).toArray();
+    this.merged = compiled;
+    this.matchers = merged == null ? null : ThreadLocal.withInitial(() -> merged.matcher(""));
+  }
+
+  /**
+   * @param providers names and providers of allow-lists in order of priority
+   * @return a provider merging patterns of the providers
+   */
+  public static CompositeRegexAllowListProvider of(Map<String, RegexAllowListProvider> providers) {
+    Map<String, Pattern> patterns = new LinkedHashMap<>();
+    providers.forEach((name, provider) -> patterns.put(name, provider.pattern));
+    return new CompositeRegexAllowListProvider(patterns);
+  }
+
+  /**
+   * @param param a text to check
+   * @return the name of the first allow-list which matches the whole parameter, or null if none matches
+   */
+  public String acceptedBy(String param) {
+    if (param == null)
+      return null;
+    // alternatives are tried in order, so the group which has matched is the first merged one which matches
+    int mergedIndex = -1;
+    if (merged != null) {
+      Matcher matcher = matchers.get().reset(param);
+      if (matcher.matches()) {
+        for (int i = 0; i < mergedNames.length && mergedIndex < 0; i++) {
+          if (matcher.start(GROUP_PREFIX + i) >= 0)
+            mergedIndex = i;
+        }
+      }
+    }
+    int mergedPriority = mergedIndex < 0 ? Integer.MAX_VALUE : mergedPriorities[mergedIndex];
+    for (int i = 0; i < separatePatterns.size() && separatePriorities.get(i) < mergedPriority; i++) {
+      if (separatePatterns.get(i).matcher(param).matches())
+        return separateNames.get(i);
+    }
+    return mergedIndex < 0 ? null : mergedNames[mergedIndex];
+  }
+
+  @Override
+  public boolean isValid(String param) {
+    return acceptedBy(param) != null;
+  }
+
+  /**
+   * @return flags for an embedded flag expression, or null if some of flags cannot be embedded
+   */
+  private static String inlineFlags(int flags) {
+    StringBuilder inline = new StringBuilder();
+    int[] values = { Pattern.CASE_INSENSITIVE, Pattern.MULTILINE, Pattern.DOTALL, Pattern.UNICODE_CASE,
+        Pattern.COMMENTS, Pattern.UNIX_LINES, Pattern.UNICODE_CHARACTER_CLASS };
+    char[] letters = { 'i', 'm', 's', 'u', 'x', 'd', 'U' };
+    int remaining = flags;
+    for (int i = 0; i < values.length; i++) {
+      if ((flags & values[i]) != 0) {
+        inline.append(letters[i]);
+        remaining &= ~values[i];
+      }
+    }
+    return remaining == 0 ? inline.toString() : null;
+  }
+}
@@ -1,23 +1,99 @@
 package sqli;
 
+import org.apache.ibatis.io.Resources;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * An allow-list of exact words.
+ * <br>1. A case-sensitive list is looked up in a {@link HashSet}.
+ * <br>2. A case-insensitive list is looked up in an open addressing table hashed by case-folded characters,
+ * so neither a lowercased copy of a parameter nor a stream is created per call.
+ */
 public class ExactWordAllowListProvider implements AllowListProvider{
 
   final List<String> candidates;
   final boolean caseSensitive;
+  private final Set<String> words;
+  private final String[] foldedTable;
+
   public ExactWordAllowListProvider(boolean caseSensitive, List<String> candidates) {
     this.candidates = candidates;
     this.caseSensitive = caseSensitive;
+    if (caseSensitive) {
+      this.words = new HashSet<>(candidates);
+      this.foldedTable = null;
+    } else {
+      this.words = null;
+      this.foldedTable = buildFoldedTable(candidates);
+    }
   }
   public ExactWordAllowListProvider(boolean caseSensitive, String... candidates) {
-    this.candidates = Arrays.stream(candidates).toList();
-    this.caseSensitive = caseSensitive;
+    this(caseSensitive, Arrays.stream(candidates).toList());
+  }
+
+  /**
+   * Load words from a resource file in the same way as {@link SQLiPatternChecker} loads signatures.
+   * Each line is a word. Lines are trimmed, and empty lines are ignored.
+   *
+   * @param caseSensitive
+   * @param resource a resource path in the classpath, e.g. <code>sqli/columns.txt</code>
+   * @return a provider
+   * @throws IOException if the resource cannot be read
+   */
+  public static ExactWordAllowListProvider fromResource(boolean caseSensitive, String resource) throws IOException {
+    List<String> candidates = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(Resources.getResourceAsReader(resource))) {
+      String line = reader.readLine();
+      while (line != null) {
+        if (!line.trim().isEmpty())
+          candidates.add(line.trim());
+        line = reader.readLine();
+      }
+    }
+    return new ExactWordAllowListProvider(caseSensitive, candidates);
   }
 
   @Override
   public boolean isValid(String param) {
-    return candidates.stream().anyMatch(candidate -> caseSensitive ? param.equals(candidate) : param.equalsIgnoreCase(candidate));
+    if (param == null)
+      return false;
+    if (caseSensitive)
+      return words.contains(param);
+    int mask = foldedTable.length - 1;
+    for (int i = foldedHash(param) & mask; foldedTable[i] != null; i = (i + 1) & mask) {
+      if (foldedTable[i].equalsIgnoreCase(param))
+        return true;
+    }
+    return false;
+  }
+
+  private static String[] buildFoldedTable(List<String> candidates) {
+    int capacity = Integer.highestOneBit(Math.max(candidates.size(), 1) * 2 - 1) << 1;  // load factor <= 0.5
+    String[] table = new String[capacity];
+    int mask = capacity - 1;
+    for (String candidate : candidates) {
+      int i = foldedHash(candidate) & mask;
+      while (table[i] != null && !table[i].equalsIgnoreCase(candidate))
+        i = (i + 1) & mask;
+      table[i] = candidate;
+    }
+    return table;
+  }
+
+  /**
+   * A hash code which is equal for strings equal by {@link String#equalsIgnoreCase(String)}
+   */
+  private static int foldedHash(String value) {
+    int hash = 0;
+    for (int i = 0; i < value.length(); i++)
+      hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+    return hash ^ (hash >>> 16);
   }
 }
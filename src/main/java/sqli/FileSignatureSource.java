@@ -0,0 +1,83 @@
+package sqli;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author qwefgh90
+ * Signatures in a file. Each line is a signature.
+ * <br>The file can be watched, so that signatures are reloaded without redeploying.
+ */
+public class FileSignatureSource implements SignatureSource {
+
+  private static final Log log = LogFactory.getLog(FileSignatureSource.class);
+
+  private final Path path;
+
+  public FileSignatureSource(Path path) {
+    this.path = path.toAbsolutePath();
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  @Override
+  public List<String> load() throws IOException {
+    List<String> signatures = new ArrayList<>();
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      ClassPathSignatureSource.readLines(reader, signatures);
+    }
+    return signatures;
+  }
+
+  /**
+   * Start a daemon thread which calls a listener whenever the file is created or modified.
+   *
+   * @param listener a listener, e.g. <code>SQLiPatternChecker::reloadSignatures</code>
+   * @return a handle to stop watching
+   * @throws IOException if the directory of the file cannot be watched
+   */
+  public Closeable watch(Runnable listener) throws IOException {
+    WatchService watchService = path.getFileSystem().newWatchService();
+    path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    Thread thread = new Thread(() -> {
+      try {
+        while (true) {
+          WatchKey key = watchService.take();
+          boolean changed = false;
+          for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= path.getFileName().equals(event.context());
+          }
+          key.reset();
+          if (changed) {
+            try {
+              listener.run();
+            } catch (RuntimeException e) {
+              log.error("Failed to reload signatures from " + path + ". Cause: " + e, e);
+            }
+          }
+        }
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        // stop watching
+      }
+    }, "sqli-signature-watcher");
+    thread.setDaemon(true);
+    thread.start();
+    return watchService;
+  }
+}
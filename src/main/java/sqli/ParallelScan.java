@@ -0,0 +1,93 @@
+package sqli;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author qwefgh90
+ * Settings to scan very large containers in a parameter object on a {@link ForkJoinPool}.
+ * <br>1. A {@link java.util.Map}, a {@link java.util.Collection} or an array with at least <code>threshold</code>
+ * elements is split into chunks of <code>chunkSize</code> elements, which are scanned in parallel.
+ * Smaller parameters are scanned on the caller thread as before.
+ * <br>2. When a chunk finds a signature or exceeds a {@link ScanBudget}, other chunks stop at their next member.
+ * <br>3. Limits of strings and characters in a budget are shared by chunks, and they are checked approximately,
+ * i.e. chunks may visit a few more members than the limits before they stop.
+ * <br>Only signature checks are parallel. Visitors given to
+ * {@link SQLiPatternChecker#visitAllStringMembers(Object, StringMemberVisitor)} are always called on the caller thread.
+ *
+ * <pre>
+ * SQLiPatternChecker.setParallelScan(new ParallelScan.Builder()
+ *     .threshold(10_000).chunkSize(2_048).pool(new ForkJoinPool(4))
+ *     .build());
+ * </pre>
+ */
+public final class ParallelScan {
+
+  public static final ParallelScan DISABLED = new Builder().threshold(Integer.MAX_VALUE).build();
+
+  private final int threshold;
+  private final int chunkSize;
+  private final ForkJoinPool pool;
+
+  private ParallelScan(Builder builder) {
+    this.threshold = builder.threshold;
+    this.chunkSize = builder.chunkSize;
+    this.pool = builder.pool;
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  public ForkJoinPool getPool() {
+    return pool;
+  }
+
+  public boolean isEnabled() {
+    return threshold != Integer.MAX_VALUE;
+  }
+
+  public static class Builder {
+    private int threshold = 10_000;
+    private int chunkSize = 1_024;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * @param threshold the minimum number of elements of a container which is split
+     * @return this builder
+     */
+    public Builder threshold(int threshold) {
+      if (threshold < 1)
+        throw new IllegalArgumentException("threshold must be positive: " + threshold);
+      this.threshold = threshold;
+      return this;
+    }
+
+    /**
+     * @param chunkSize the maximum number of elements scanned by a task
+     * @return this builder
+     */
+    public Builder chunkSize(int chunkSize) {
+      if (chunkSize < 1)
+        throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+      this.chunkSize = chunkSize;
+      return this;
+    }
+
+    /**
+     * @param pool a pool which runs chunks. The common pool is used by default.
+     * @return this builder
+     */
+    public Builder pool(ForkJoinPool pool) {
+      this.pool = pool;
+      return this;
+    }
+
+    public ParallelScan build() {
+      return new ParallelScan(this);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package sqli;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+
+/**
+ * @author qwefgh90
+ * Thrown when a statement is rejected because of a value which looks like SQL injection.
+ */
+public class SQLInjectionException extends PersistenceException {
+
+  private static final long serialVersionUID = -3209518311723562402L;
+
+  public SQLInjectionException() {
+    super();
+  }
+
+  public SQLInjectionException(String message) {
+    super(message);
+  }
+
+  public SQLInjectionException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public SQLInjectionException(Throwable cause) {
+    super(cause);
+  }
+}
@@ -0,0 +1,253 @@
+package sqli;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.PluginException;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlInjectionDetector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author qwefgh90
+ * An interceptor which inspects values substituted for <code>${}</code> before {@link Executor} runs a statement.
+ * <br>1. <code>mode</code> - <code>reject</code> (default) throws {@link SQLInjectionException}, <code>log</code> only warns.
+ * An exceeded {@link ScanBudget} whose policy is {@link ScanBudget.Policy#REJECT} follows the mode as well.
+ * If signatures of {@link SQLiPatternChecker} are not loaded, a check which needs them is rejected in any mode.
+ * <br>2. <code>sampleEvery</code> - inspect 1 in N calls on average, where N is a positive integer.
+ * <code>samplePercent</code> - inspect X% of calls, where X is from 0 to 100.
+ * Every call is inspected by default.
+ * <br>3. <code>allowLists</code> - comma separated names in {@link AllowListProviderRegistry}. If it is set,
+ * every substituted value must be valid by one of them. Names are resolved once, and providers registered later apply. Otherwise, values are checked by {@link SQLiPatternChecker}.
+ * <br>4. <code>excludes</code> - comma separated statement ids which are not inspected.
+ * An id ending with <code>*</code> matches every statement starting with it, e.g. <code>com.acme.ReportMapper.*</code>
+ * <br>5. <code>detector</code> - <code>signatures</code> (default) checks values by {@link SQLiPatternChecker},
+ * <code>tokens</code> checks whether values change the token structure of SQL by {@link SqlStructureDetector}.
+ * <code>allowedFunctions</code> - comma separated names of functions which values can call with <code>tokens</code>,
+ * e.g. <code>lower,coalesce</code>. No function is allowed by default.
+ * <br>6. <code>metrics</code> - <code>jmx</code> records metrics into a {@link SQLiMetricsRegistry} registered as
+ * an MXBean named by <code>metricsName</code> (<code>default</code> by default), or a class name of
+ * {@link SQLiMetrics}. Nothing is recorded by default.
+ *
+ * <pre>
+ * &lt;plugin interceptor="sqli.SQLiInterceptor"&gt;
+ *   &lt;property name="mode" value="log"/&gt;
+ *   &lt;property name="samplePercent" value="10"/&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ */
+@Intercepts({
+  @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+  @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+  @Signature(type = Executor.class, method = "queryCursor", args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class SQLiInterceptor implements Interceptor {
+
+  private static final Log log = LogFactory.getLog(SQLiInterceptor.class);
+
+  public enum Mode {
+    REJECT, LOG
+  }
+
+  public enum Detector {
+    SIGNATURES, TOKENS
+  }
+
+  private Mode mode = Mode.REJECT;
+  private Detector detector = Detector.SIGNATURES;
+  private double sampleRate = 1.0;
+  private AllowListProvider allowList;
+  private SQLiMetrics metrics = SQLiMetrics.NOOP;
+  // used unless the sqlInjectionDetector setting is a SQLiVerdictCache, which is shared with SqlSession
+  private final SQLiVerdictCache verdictCache = new SQLiVerdictCache();
+  private final List<String> excludedIds = new ArrayList<>();
+  private final List<String> excludedPrefixes = new ArrayList<>();
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    Object[] args = invocation.getArgs();
+    MappedStatement ms = (MappedStatement) args[0];
+    if (!shouldInspect(ms.getId())) {
+      metrics.skipped(ms.getId());
+    } else {
+      String message;
+      try {
+        String violation = inspect(ms, args[1]);
+        message = violation == null ? null : "A value substituted in the statement '" + ms.getId() + "' " + violation;
+      } catch (SQLInjectionException e) {
+        // an exceeded scan budget, or signatures which are not loaded
+        if (mode == Mode.REJECT || !SQLiPatternChecker.isSignaturesLoaded())
+          throw e;
+        message = "Inspecting the statement '" + ms.getId() + "' failed: " + e.getMessage();
+      }
+      if (message != null) {
+        if (mode == Mode.REJECT)
+          throw new SQLInjectionException(message);
+        log.warn(message);
+      }
+    }
+    return invocation.proceed();
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    String modeValue = properties.getProperty("mode");
+    if (modeValue != null)
+      mode = Mode.valueOf(modeValue.trim().toUpperCase(Locale.ENGLISH));
+    String detectorValue = properties.getProperty("detector");
+    if (detectorValue != null)
+      detector = Detector.valueOf(detectorValue.trim().toUpperCase(Locale.ENGLISH));
+    String allowedFunctions = properties.getProperty("allowedFunctions");
+    if (allowedFunctions != null)
+      SqlStructureDetector.setAllowedFunctions(split(allowedFunctions));
+    String sampleEvery = properties.getProperty("sampleEvery");
+    if (sampleEvery != null)
+      sampleRate = 1.0 / parseSampleEvery(sampleEvery);
+    String samplePercent = properties.getProperty("samplePercent");
+    if (samplePercent != null)
+      sampleRate = parseSamplePercent(samplePercent) / 100;
+    String allowListsValue = properties.getProperty("allowLists");
+    if (allowListsValue != null)
+      allowList = AllowListProviderRegistry.resolve(split(allowListsValue).toArray(new String[0]));
+    String metricsValue = properties.getProperty("metrics");
+    if (metricsValue != null)
+      metrics = createMetrics(metricsValue.trim(), properties.getProperty("metricsName"));
+    String excludes = properties.getProperty("excludes");
+    if (excludes != null) {
+      for (String id : split(excludes)) {
+        if (id.endsWith("*"))
+          excludedPrefixes.add(id.substring(0, id.length() - 1));
+        else
+          excludedIds.add(id);
+      }
+    }
+  }
+
+  /**
+   * @param id a statement id
+   * @return false if the statement is excluded or the call is not sampled
+   */
+  boolean shouldInspect(String id) {
+    if (excludedIds.contains(id))
+      return false;
+    for (String prefix : excludedPrefixes) {
+      if (id.startsWith(prefix))
+        return false;
+    }
+    return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  /**
+   * @return a description of the violation, or null if the parameter is safe
+   */
+  private String inspect(MappedStatement ms, Object parameterObject) {
+    if (metrics == SQLiMetrics.NOOP)
+      return inspect(ms, parameterObject, null);
+    long start = System.nanoTime();
+    ScanStats stats = new ScanStats();
+    try {
+      return inspect(ms, parameterObject, stats);
+    } finally {
+      metrics.checked(ms.getId(), stats, System.nanoTime() - start);
+    }
+  }
+
+  private String inspect(MappedStatement ms, Object parameterObject, ScanStats stats) {
+    if (allowList != null) {
+      List<Object> values = SubstitutedValues.evaluate(ms, parameterObject);
+      if (values != null) {
+        String[] invalid = new String[1];
+        SQLiPatternChecker.visitAllStringMembers(values, value -> {
+          if (allowList.isValid(value))
+            return true;
+          invalid[0] = value;
+          return false;
+        }, stats);
+        if (invalid[0] == null)
+          return null;
+        metrics.allowListRejected(ms.getId());
+        return "is not allowed: [ " + invalid[0] + " ]";
+      }
+    }
+    if (detector == Detector.TOKENS) {
+      String violation = SqlStructureDetector.check(ms, parameterObject, stats);
+      if (violation != null)
+        metrics.structureViolated(ms.getId());
+      return violation;
+    }
+    SqlInjectionDetector configured = ms.getConfiguration().getSqlInjectionDetector();
+    SQLiVerdictCache cache = configured instanceof SQLiVerdictCache ? (SQLiVerdictCache) configured : verdictCache;
+    String pattern = cache.check(ms, parameterObject, stats);
+    if (pattern == null)
+      return null;
+    metrics.signatureMatched(ms.getId(), pattern);
+    return "matches a SQL injection pattern: [ " + pattern + " ]";
+  }
+
+  /**
+   * @param metrics a listener of checks, or {@link SQLiMetrics#NOOP}
+   */
+  public void setMetrics(SQLiMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public SQLiMetrics getMetrics() {
+    return metrics;
+  }
+
+  private static SQLiMetrics createMetrics(String type, String name) {
+    try {
+      if ("jmx".equalsIgnoreCase(type)) {
+        SQLiMetricsRegistry registry = new SQLiMetricsRegistry();
+        registry.registerMBean(name == null ? "default" : name.trim());
+        return registry;
+      }
+      return (SQLiMetrics) Resources.classForName(type).getDeclaredConstructor().newInstance();
+    } catch (Exception e) {
+      throw new PluginException("Error creating SQLi metrics '" + type + "'.  Cause: " + e, e);
+    }
+  }
+
+  private static int parseSampleEvery(String value) {
+    try {
+      int every = Integer.parseInt(value.trim());
+      if (every > 0)
+        return every;
+    } catch (NumberFormatException e) {
+      // rejected below
+    }
+    throw new IllegalArgumentException("sampleEvery must be a positive integer: " + value);
+  }
+
+  private static double parseSamplePercent(String value) {
+    try {
+      double percent = Double.parseDouble(value.trim());
+      if (percent >= 0 && percent <= 100)
+        return percent;
+    } catch (NumberFormatException e) {
+      // rejected below
+    }
+    throw new IllegalArgumentException("samplePercent must be a number from 0 to 100: " + value);
+  }
+
+  private static List<String> split(String value) {
+    List<String> list = new ArrayList<>();
+    for (String token : value.split(",")) {
+      if (!token.trim().isEmpty())
+        list.add(token.trim());
+    }
+    return list;
+  }
+}
@@ -0,0 +1,58 @@
+package sqli;
+
+/**
+ * @author qwefgh90
+ * A listener of checks done by {@link SQLiInterceptor}, e.g. to count them or to measure their latency.
+ * <br>Methods are called on request threads, so implementations must be thread-safe and should not block.
+ * Every method does nothing by default. {@link #NOOP} is used unless another implementation is configured.
+ *
+ * @see SQLiMetricsRegistry
+ */
+public interface SQLiMetrics {
+
+  SQLiMetrics NOOP = new SQLiMetrics() {
+  };
+
+  /**
+   * A statement is not checked because it is excluded or not sampled.
+   *
+   * @param statementId
+   */
+  default void skipped(String statementId) {
+  }
+
+  /**
+   * A statement has been checked.
+   *
+   * @param statementId
+   * @param stats string members visited by the check
+   * @param nanos the elapsed time of the check
+   */
+  default void checked(String statementId, ScanStats stats, long nanos) {
+  }
+
+  /**
+   * A value matched a signature of {@link SQLiPatternChecker}.
+   *
+   * @param statementId
+   * @param signature
+   */
+  default void signatureMatched(String statementId, String signature) {
+  }
+
+  /**
+   * A value was not valid by allow-lists.
+   *
+   * @param statementId
+   */
+  default void allowListRejected(String statementId) {
+  }
+
+  /**
+   * A value changed the structure of SQL by {@link SqlStructureDetector}.
+   *
+   * @param statementId
+   */
+  default void structureViolated(String statementId) {
+  }
+}
@@ -0,0 +1,43 @@
+package sqli;
+
+import java.util.Map;
+
+/**
+ * @author qwefgh90
+ * A management interface of {@link SQLiMetricsRegistry}. Maps are keyed by statement id unless noted otherwise.
+ */
+public interface SQLiMetricsMXBean {
+
+  Map<String, Long> getChecks();
+
+  Map<String, Long> getSkipped();
+
+  Map<String, Long> getStringsScanned();
+
+  Map<String, Long> getCharsScanned();
+
+  Map<String, Long> getScanNanos();
+
+  /**
+   * @return the median of scan time in nanoseconds, approximated by a power of two
+   */
+  Map<String, Long> getScanNanosP50();
+
+  /**
+   * @return the 99th percentile of scan time in nanoseconds, approximated by a power of two
+   */
+  Map<String, Long> getScanNanosP99();
+
+  Map<String, Long> getSignatureMatches();
+
+  Map<String, Long> getAllowListRejections();
+
+  Map<String, Long> getStructureViolations();
+
+  /**
+   * @return the number of matches by signature
+   */
+  Map<String, Long> getMatchesBySignature();
+
+  void reset();
+}
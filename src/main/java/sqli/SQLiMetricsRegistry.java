@@ -0,0 +1,199 @@
+package sqli;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * @author qwefgh90
+ * Counters and latency histograms of checks per statement.
+ * <br>1. Every counter is a {@link LongAdder}, which is striped by threads, so recording does not contend.
+ * <br>2. Scan time is recorded into a histogram whose buckets are powers of two of nanoseconds.
+ * <br>3. It can be registered as an MXBean to read metrics with JConsole or any JMX client.
+ *
+ * <pre>
+ * SQLiMetricsRegistry metrics = new SQLiMetricsRegistry();
+ * metrics.registerMBean("default");   // sqli:type=SQLiMetrics,name=default
+ * interceptor.setMetrics(metrics);
+ * </pre>
+ */
+public class SQLiMetricsRegistry implements SQLiMetrics, SQLiMetricsMXBean {
+
+  private static final int BUCKETS = 64;
+
+  private final ConcurrentMap<String, StatementMetrics> statements = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongAdder> matchesBySignature = new ConcurrentHashMap<>();
+
+  @Override
+  public void skipped(String statementId) {
+    statementOf(statementId).skipped.increment();
+  }
+
+  @Override
+  public void checked(String statementId, ScanStats stats, long nanos) {
+    StatementMetrics metrics = statementOf(statementId);
+    metrics.checks.increment();
+    metrics.strings.add(stats.getStrings());
+    metrics.chars.add(stats.getChars());
+    metrics.nanos.add(nanos);
+    metrics.histogram[bucketOf(nanos)].increment();
+  }
+
+  @Override
+  public void signatureMatched(String statementId, String signature) {
+    statementOf(statementId).signatureMatches.increment();
+    matchesBySignature.computeIfAbsent(signature, key -> new LongAdder()).increment();
+  }
+
+  @Override
+  public void allowListRejected(String statementId) {
+    statementOf(statementId).allowListRejections.increment();
+  }
+
+  @Override
+  public void structureViolated(String statementId) {
+    statementOf(statementId).structureViolations.increment();
+  }
+
+  @Override
+  public Map<String, Long> getChecks() {
+    return collect(metrics -> metrics.checks.sum());
+  }
+
+  @Override
+  public Map<String, Long> getSkipped() {
+    return collect(metrics -> metrics.skipped.sum());
+  }
+
+  @Override
+  public Map<String, Long> getStringsScanned() {
+    return collect(metrics -> metrics.strings.sum());
+  }
+
+  @Override
+  public Map<String, Long> getCharsScanned() {
+    return collect(metrics -> metrics.chars.sum());
+  }
+
+  @Override
+  public Map<String, Long> getScanNanos() {
+    return collect(metrics -> metrics.nanos.sum());
+  }
+
+  @Override
+  public Map<String, Long> getScanNanosP50() {
+    return collect(metrics -> metrics.percentile(0.5));
+  }
+
+  @Override
+  public Map<String, Long> getScanNanosP99() {
+    return collect(metrics -> metrics.percentile(0.99));
+  }
+
+  @Override
+  public Map<String, Long> getSignatureMatches() {
+    return collect(metrics -> metrics.signatureMatches.sum());
+  }
+
+  @Override
+  public Map<String, Long> getAllowListRejections() {
+    return collect(metrics -> metrics.allowListRejections.sum());
+  }
+
+  @Override
+  public Map<String, Long> getStructureViolations() {
+    return collect(metrics -> metrics.structureViolations.sum());
+  }
+
+  @Override
+  public Map<String, Long> getMatchesBySignature() {
+    Map<String, Long> result = new TreeMap<>();
+    matchesBySignature.forEach((signature, count) -> result.put(signature, count.sum()));
+    return result;
+  }
+
+  @Override
+  public void reset() {
+    statements.clear();
+    matchesBySignature.clear();
+  }
+
+  /**
+   * Register this registry to the platform MBean server.
+   *
+   * @param name a name to distinguish registries, e.g. an environment id
+   * @return the name of the registered MBean
+   * @throws JMException if a bean of the same name exists or the name is invalid
+   */
+  public ObjectName registerMBean(String name) throws JMException {
+    ObjectName objectName = new ObjectName("sqli:type=SQLiMetrics,name=" + ObjectName.quote(name));
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    server.registerMBean(this, objectName);
+    return objectName;
+  }
+
+  private StatementMetrics statementOf(String statementId) {
+    StatementMetrics metrics = statements.get(statementId);  // a lock-free read in most cases
+    return metrics != null ? metrics : statements.computeIfAbsent(statementId, id -> new StatementMetrics());
+  }
+
+  private Map<String, Long> collect(ToLongFunction<StatementMetrics> metric) {
+    Map<String, Long> result = new TreeMap<>();
+    statements.forEach((id, metrics) -> result.put(id, metric.applyAsLong(metrics)));
+    return result;
+  }
+
+  /**
+   * @return the index of the highest one bit, so bucket i holds [2^(i-1), 2^i) nanoseconds
+   */
+  private static int bucketOf(long nanos) {
+    return Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 0)));
+  }
+
+  private static final class StatementMetrics {
+    final LongAdder checks = new LongAdder();
+    final LongAdder skipped = new LongAdder();
+    final LongAdder strings = new LongAdder();
+    final LongAdder chars = new LongAdder();
+    final LongAdder nanos = new LongAdder();
+    final LongAdder signatureMatches = new LongAdder();
+    final LongAdder allowListRejections = new LongAdder();
+    final LongAdder structureViolations = new LongAdder();
+    final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+    StatementMetrics() {
+      for (int i = 0; i < BUCKETS; i++) {
+        histogram[i] = new LongAdder();
+      }
+    }
+
+    /**
+     * @return the upper bound of the bucket which contains the percentile, or 0 if nothing is recorded
+     */
+    long percentile(double p) {
+      long[] counts = new long[BUCKETS];
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        counts[i] = histogram[i].sum();
+        total += counts[i];
+      }
+      long rank = (long) Math.ceil(total * p);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= rank && seen > 0) {
+          return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+        }
+      }
+      return 0;
+    }
+  }
+}
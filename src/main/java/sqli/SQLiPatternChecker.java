@@ -1,59 +1,178 @@
 package sqli;
 
-import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.MappedStatement;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.lang.reflect.*;
-import java.util.*;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author qwefgh90
  * Find attacks
- * <br>1. Visit all memebers in objects recursively and insert them into a String list
+ * <br>1. Visit all memebers in objects recursively and feed them into a matcher one by one
  * <br>2. Find malicious codes included in every string value with <a href="https://github.com/payloadbox/sql-injection-payload-list">SQL Injection Payload List</a>
  * <br>3. If malicious codes is found, return true. Otherwise, return false.
+ * <br>4. It fails closed. If signatures cannot be loaded when this class is initialized, every check throws
+ * {@link SQLInjectionException} until they are loaded by {@link #setSignatureSource(SignatureSource)} or
+ * {@link #reloadSignatures()}. {@link #isSignaturesLoaded()} tells whether they are loaded.
  */
 public class SQLiPatternChecker {
 
-  private static List<String> patterns = new ArrayList();
+  private static final Log log = LogFactory.getLog(SQLiPatternChecker.class);
+
+  private static volatile SignatureSource source = ClassPathSignatureSource.defaults();
+  // null until signatures are loaded
+  private static volatile SignatureMatcher matcher;
+  private static volatile ScanBudget scanBudget = ScanBudget.UNLIMITED;
+  private static volatile ParallelScan parallelScan = ParallelScan.DISABLED;
 
   static {
-    try (BufferedReader reader = new BufferedReader(Resources.getResourceAsReader("sqli/Generic_SQLI.txt"))) {
-      String line = reader.readLine();
-      while (line != null) {
-        patterns.add(line.toLowerCase()); // to lowercase
-        line = reader.readLine();
-      }
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+    try {
+      matcher = source.compile();
+    } catch (IOException | RuntimeException e) {
+      log.error("Failed to load SQL injection signatures. Every check is rejected until they are loaded. Cause: " + e, e);
     }
-    try (BufferedReader reader = new BufferedReader(Resources.getResourceAsReader("sqli/Generic_UnionSelect.txt"))) {
-      String line = reader.readLine();
-      while (line != null) {
-        patterns.add(line.toLowerCase()); // to lowercase
-        line = reader.readLine();
-      }
+  }
+
+  /**
+   * Load signatures from a source and swap the matcher atomically.
+   * If the source cannot be loaded, the current matcher is kept.
+   *
+   * @param signatureSource
+   * @throws IOException if signatures cannot be read
+   */
+  public static synchronized void setSignatureSource(SignatureSource signatureSource) throws IOException {
+    SignatureMatcher newMatcher = signatureSource.compile();
+    source = signatureSource;
+    matcher = newMatcher;
+  }
+
+  /**
+   * Load signatures from the current source again, e.g. when a watched file is modified.
+   * If the source cannot be loaded, the current matcher is kept.
+   *
+   * <pre>
+   * FileSignatureSource source = new FileSignatureSource(Path.of("/etc/sqli/signatures.txt"));
+   * SQLiPatternChecker.setSignatureSource(source);
+   * source.watch(SQLiPatternChecker::reloadSignatures);
+   * </pre>
+   */
+  public static synchronized void reloadSignatures() {
+    try {
+      matcher = source.compile();
     } catch (IOException e) {
-      throw new RuntimeException(e);
+      throw new UncheckedIOException(e);
     }
   }
 
   /**
-   * Compare operation executes (A number of parameter * A number of pattern) times
+   * Drop the current signatures, so checks are rejected as if signatures had failed to load.
+   */
+  static synchronized void clearSignatures() {
+    matcher = null;
+  }
+
+  /**
+   * @return true if signatures are loaded. Otherwise, every check throws {@link SQLInjectionException}.
+   */
+  public static boolean isSignaturesLoaded() {
+    return matcher != null;
+  }
+
+  /**
+   * @return the current matcher. It is replaced whenever signatures are reloaded.
+   * @throws SQLInjectionException if signatures are not loaded
+   */
+  public static SignatureMatcher getSignatureMatcher() {
+    SignatureMatcher current = matcher;
+    if (current == null)
+      throw new SQLInjectionException("SQL injection signatures are not loaded, so values cannot be checked");
+    return current;
+  }
+
+  /**
+   * Limit every scan of parameter objects, e.g. by depth, the number of strings or time.
+   *
+   * @param budget a budget, or {@link ScanBudget#UNLIMITED} (default)
+   */
+  public static void setScanBudget(ScanBudget budget) {
+    scanBudget = budget;
+  }
+
+  public static ScanBudget getScanBudget() {
+    return scanBudget;
+  }
+
+  /**
+   * Scan very large containers in parameter objects in parallel when signatures are checked.
+   *
+   * @param parallel settings, or {@link ParallelScan#DISABLED} (default)
+   */
+  public static void setParallelScan(ParallelScan parallel) {
+    parallelScan = parallel;
+  }
+
+  public static ParallelScan getParallelScan() {
+    return parallelScan;
+  }
+
+  /**
+   * Every string member is fed into an automaton of all patterns as soon as it is found,
+   * and visiting stops at the first match. The cost is linear in the total length of visited members.
    *
    * @param object
-   * @return if any parameter matches one of patterns return true. otherwise return false.
+   * @return a matched pattern if any parameter matches one of patterns. otherwise return null.
    */
   public static String containsSQLInjectionPattern(Object object) {
-    List<String> parameterList = new ArrayList<>();
-    collectAllStringMembers(object, parameterList);
-    for (String parameter : parameterList) {
-      var pattern = containsAnyPattern(parameter);
-      if (pattern != null)
-        return pattern;
-    }
-    return null;
+    return containsSQLInjectionPattern(object, null);
+  }
+
+  /**
+   * @param object
+   * @param stats counts of visited members are added to it. It can be null.
+   * @return a matched pattern if any parameter matches one of patterns. otherwise return null.
+   * @throws SQLInjectionException if signatures are not loaded
+   */
+  public static String containsSQLInjectionPattern(Object object, ScanStats stats) {
+    FirstPatternVisitor visitor = new FirstPatternVisitor(getSignatureMatcher());
+    visitAllStringMembers(object, visitor, stats, parallelScan);
+    return visitor.pattern;
+  }
+
+  /**
+   * Inspect only the values substituted for <code>${}</code> in a statement.
+   * Values bound with <code>#{}</code> are skipped, because they are passed through PreparedStatement.
+   * If the values cannot be determined, e.g. for a provider, the whole parameter object is inspected.
+   *
+   * @param mappedStatement
+   * @param parameterObject a parameter object which is passed to an executor
+   * @return a matched pattern if any substituted value matches one of patterns. otherwise return null.
+   */
+  public static String containsSQLInjectionPattern(MappedStatement mappedStatement, Object parameterObject) {
+    List<Object> values = SubstitutedValues.evaluate(mappedStatement, parameterObject);
+    return containsSQLInjectionPattern(values == null ? parameterObject : values);
+  }
+
+  /**
+   * Find all patterns in every parameter instead of stopping at the first one.
+   *
+   * @param object
+   * @return matched patterns. The list is empty if none of parameters matches.
+   */
+  public static List<String> findAllSQLInjectionPatterns(Object object) {
+    List<String> found = new ArrayList<>();
+    SignatureMatcher current = getSignatureMatcher();
+    visitAllStringMembers(object, parameter -> {
+      for (String pattern : current.allMatches(parameter)) {
+        if (!found.contains(pattern))
+          found.add(pattern);
+      }
+      return true;
+    });
+    return found;
   }
 
   /**
@@ -64,104 +183,69 @@ public class SQLiPatternChecker {
    * @param list
    */
   public static void collectAllStringMembers(Object target, List<String> list) {
-    collectAllStringMembers(target, target.getClass(), list, new HashSet<>());
+    visitAllStringMembers(target, list::add);
   }
 
-  private static String containsAnyPattern(String parameter) {
-    for (String pattern : patterns) {
-      var normalizedParameter = parameter.replaceAll("\s+", "");
-      var normalizedPattern = pattern.replaceAll("\s+", "");
-      if (!normalizedPattern.isEmpty()
-        && !normalizedParameter.isEmpty()
-        && normalizedParameter.toLowerCase().contains(normalizedPattern))
-        return pattern;
-    }
-    return null;
-  }
-
-  private static void collectAllStringMembers(Object target, Class subType, List<String> candidates, HashSet<Object> visitedObjects) {
-    if (target == null)
-      return;
-    Class targetType = subType != null ? subType : target.getClass();
-    ObjectAndSubType pair = new ObjectAndSubType(target, targetType);
-    if (visitedObjects.contains(pair)        // Skip if an object and a type have been already visited.
-      || targetType.equals(Object.class)   // Skip if a type is Object class.
-    )
-      return;
-    else                                                             // Otherwise, put them into the set
-      visitedObjects.add(pair);
-
-    if (Map.class.isAssignableFrom(targetType)) {          // Iterable.class - A class that inherits from Iterable
-      Map iterable = (Map) target;
-      for (Map.Entry element : (Set<Map.Entry>) iterable.entrySet()) {
-        collectAllStringMembers(element.getKey(), null, candidates, visitedObjects); // A recursive call
-        collectAllStringMembers(element.getValue(), null, candidates, visitedObjects); // A recursive call
-      }
-    } else if (Iterable.class.isAssignableFrom(targetType)) {          // Iterable.class - A class that inherits from Iterable
-      Iterable iterable = (Iterable) target;
-      for (Object element : iterable) {
-        collectAllStringMembers(element, null, candidates, visitedObjects); // A recursive call
-      }
-    } else if (targetType.isArray()) {                               // [L*.class - Array class
-      for (Object element : (Object[]) target) {
-        collectAllStringMembers(element, null, candidates, visitedObjects); // A recursive call
-      }
-    } else if (targetType.getPackageName().startsWith("java.lang")) {    // Built-in classes
-      candidates.add(target.toString());  //update a list
-    } else {                                                          // *.class - Other classes
-      if (classImplementsToString(targetType)) {                        // If it implements toString()
-        try {
-          Method method = targetType.getDeclaredMethod("toString");
-          candidates.add((String) method.invoke(target));   //update a list
-        } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-          // An unreachable block
-        }
-      }
-      for (Field field : targetType.getDeclaredFields()) {           // Visit all fields in this class
-        try {
-          field.setAccessible(true);
-          collectAllStringMembers(field.get(target), null, candidates, visitedObjects); // A recursive call
-        } catch (IllegalAccessException | InaccessibleObjectException e) {
-//          System.err.println(e);
-        }
-      }
-      if (targetType.getSuperclass() != null)                         // Visit all fields in the super class
-        collectAllStringMembers(target, targetType.getSuperclass(), candidates, visitedObjects); // A recursive call with a super class
-    }
+  /**
+   * It visits the same members as {@link #collectAllStringMembers(Object, List)} without collecting them.
+   *
+   * Visiting is limited by {@link #getScanBudget()}.
+   *
+   * @param target
+   * @param visitor a visitor which can stop visiting by returning false
+   * @return true if all members have been visited. false if the visitor or the budget has stopped visiting.
+   * @throws SQLInjectionException if a limit of the budget is exceeded and its policy is {@link ScanBudget.Policy#REJECT}
+   */
+  public static boolean visitAllStringMembers(Object target, StringMemberVisitor visitor) {
+    return visitAllStringMembers(target, visitor, null);
   }
 
-  private static boolean classImplementsToString(final Class<?> aClass) {
-    try {
-      aClass.getDeclaredMethod("toString");
-      return true;
+  /**
+   * @param target
+   * @param visitor a visitor which can stop visiting by returning false
+   * @param stats counts of visited members are added to it. It can be null.
+   * @return true if all members have been visited. false if the visitor or the budget has stopped visiting.
+   * @throws SQLInjectionException if a limit of the budget is exceeded and its policy is {@link ScanBudget.Policy#REJECT}
+   */
+  public static boolean visitAllStringMembers(Object target, StringMemberVisitor visitor, ScanStats stats) {
+    return visitAllStringMembers(target, visitor, stats, ParallelScan.DISABLED);
+  }
 
-    } catch (NoSuchMethodException e) {
-      return false;
+  private static boolean visitAllStringMembers(Object target, StringMemberVisitor visitor, ScanStats stats,
+      ParallelScan parallel) {
+    ScanBudget budget = scanBudget;
+    StringMemberScanner scanner = new StringMemberScanner(visitor, budget, parallel);
+    boolean completed = scanner.scan(target);
+    if (stats != null)
+      stats.add(scanner.getStrings(), scanner.getChars());
+    if (scanner.getExceededBudget() != null) {
+      String message = "Scanning a parameter of " + target.getClass().getName() + " exceeded the budget ("
+          + scanner.getExceededBudget() + ")";
+      ScanBudget.Policy policy = budget.getPolicy(scanner.getExceededLimit());
+      if (policy == ScanBudget.Policy.REJECT)
+        throw new SQLInjectionException(message);
+      if (policy == ScanBudget.Policy.LOG)
+        log.warn(message);
     }
+    return completed;
   }
 
-  static class ObjectAndSubType {
-    Object object;
-    Class clazz;
-
-    public ObjectAndSubType(Object object, Class clazz) {
-      this.object = object;
-      this.clazz = clazz;
-    }
+  // It is thread-safe, so chunks of a parallel scan share it.
+  private static class FirstPatternVisitor implements StringMemberVisitor {
+    final SignatureMatcher matcher;
+    volatile String pattern;
 
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) return true;
-      if (o == null || getClass() != o.getClass()) return false;
-      ObjectAndSubType that = (ObjectAndSubType) o;
-      return Objects.equals(object, that.object) && Objects.equals(clazz, that.clazz);
+    FirstPatternVisitor(SignatureMatcher matcher) {
+      this.matcher = matcher;
     }
 
     @Override
-    public int hashCode() {
-      return Objects.hash(object, clazz);
+    public boolean visit(String value) {
+      String found = matcher.firstMatch(value);
+      if (found == null)
+        return true;
+      pattern = found;
+      return false;
     }
   }
-
-
 }
@@ -0,0 +1,238 @@
+package sqli;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.SqlInjectionDetector;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author qwefgh90
+ * A bounded, thread-safe cache of verdicts of {@link SQLiPatternChecker} per statement.
+ * <br>1. A key consists of a statement id and normalized string forms of values substituted for <code>${}</code>.
+ * Values which differ only in whitespace or case, e.g. <code>NAME desc</code> and <code>name DESC</code>, share a verdict
+ * because {@link SignatureMatcher} matches the normalized form.
+ * <br>2. If the same values are requested again, e.g. the same sort column, the verdict is returned without scanning.
+ * <br>3. Verdicts are invalidated when signatures of {@link SQLiPatternChecker} are reloaded.
+ * <br>4. Values which are too long to be a key, or statements which cannot be analyzed, are scanned without caching.
+ * Values are visited once, so a scan budget is applied, logged and counted once per check.
+ * <br>5. Verdicts are kept in stripes of LRU maps selected by the hash of a key, so checks of different keys rarely
+ * wait for each other. Each stripe evicts its least recently used verdict, and small caches have a single stripe.
+ * <br>6. It is a {@link SqlInjectionDetector}, so it can be set with the <code>sqlInjectionDetector</code> setting to be
+ * used by {@link org.apache.ibatis.session.SqlSession#checkSQLInjection(String, Object)}.
+ */
+public class SQLiVerdictCache implements SqlInjectionDetector {
+
+  public static final int DEFAULT_SIZE = 1024;
+  public static final int DEFAULT_MAX_KEY_LENGTH = 1024;
+
+  private static final int MAX_STRIPES = 16;
+  private static final int MIN_STRIPE_SIZE = 64;
+
+  private final Stripe[] stripes;
+  private final int maxKeyLength;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder bypasses = new LongAdder();
+
+  public SQLiVerdictCache() {
+    this(DEFAULT_SIZE, DEFAULT_MAX_KEY_LENGTH);
+  }
+
+  /**
+   * @param size the maximum number of verdicts. The least recently used one in a stripe is evicted.
+   * @param maxKeyLength the maximum total length of substituted values to cache a verdict
+   */
+  public SQLiVerdictCache(int size, int maxKeyLength) {
+    int count = 1;
+    while (count < MAX_STRIPES && size / (count * 2) >= MIN_STRIPE_SIZE)
+      count *= 2;
+    this.stripes = new Stripe[count];
+    for (int i = 0; i < count; i++)
+      stripes[i] = new Stripe((size + count - 1) / count);
+    this.maxKeyLength = maxKeyLength;
+  }
+
+  /**
+   * @return true if any substituted value matches one of patterns, if the parameter exceeds the scan budget of
+   *         {@link SQLiPatternChecker} whose policy is to reject, or if signatures are not loaded
+   */
+  @Override
+  public boolean isInjection(MappedStatement mappedStatement, Object parameterObject) {
+    try {
+      return check(mappedStatement, parameterObject) != null;
+    } catch (SQLInjectionException e) {
+      return true;  // A scan budget is exceeded, or signatures are not loaded
+    }
+  }
+
+  /**
+   * @param mappedStatement
+   * @param parameterObject a parameter object which is passed to an executor
+   * @return a matched pattern if any substituted value matches one of patterns. otherwise return null.
+   */
+  public String check(MappedStatement mappedStatement, Object parameterObject) {
+    return check(mappedStatement, parameterObject, null);
+  }
+
+  /**
+   * @param mappedStatement
+   * @param parameterObject a parameter object which is passed to an executor
+   * @param stats counts of visited members are added to it. It can be null.
+   * @return a matched pattern if any substituted value matches one of patterns. otherwise return null.
+   */
+  public String check(MappedStatement mappedStatement, Object parameterObject, ScanStats stats) {
+    List<Object> values = SubstitutedValues.evaluate(mappedStatement, parameterObject);
+    if (values == null) {
+      bypasses.increment();
+      return SQLiPatternChecker.containsSQLInjectionPattern(parameterObject, stats);
+    }
+    SignatureMatcher matcher = SQLiPatternChecker.getSignatureMatcher();
+    KeyCollector collector = new KeyCollector(matcher);
+    boolean completed = SQLiPatternChecker.visitAllStringMembers(values, collector, stats);
+    if (!collector.cacheable) {
+      bypasses.increment();
+      return collector.pattern;
+    }
+    if (!completed) { // the budget has stopped visiting, so the verdict is about visited values only
+      bypasses.increment();
+      return firstMatch(matcher, collector.strings);
+    }
+    CacheKey key = new CacheKey();
+    key.update(mappedStatement.getId());
+    collector.strings.forEach(key::update);
+    Stripe stripe = stripes[(key.hashCode() & Integer.MAX_VALUE) % stripes.length];
+    Verdict verdict = stripe.get(key);
+    if (verdict != null && verdict.matcher == matcher) { // verdicts of reloaded signatures are stale
+      hits.increment();
+      return verdict.pattern;
+    }
+    misses.increment();
+    String pattern = firstMatch(matcher, collector.strings);
+    stripe.put(key, new Verdict(matcher, pattern));
+    return pattern;
+  }
+
+  private static String firstMatch(SignatureMatcher matcher, List<String> strings) {
+    for (String string : strings) {
+      String pattern = matcher.firstMatch(string);
+      if (pattern != null)
+        return pattern;
+    }
+    return null;
+  }
+
+  /**
+   * @return the number of verdicts returned from the cache
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the number of verdicts computed and put into the cache
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of verdicts computed without the cache
+   */
+  public long getBypasses() {
+    return bypasses.sum();
+  }
+
+  public int getSize() {
+    int size = 0;
+    for (Stripe stripe : stripes)
+      size += stripe.size();
+    return size;
+  }
+
+  public void clear() {
+    for (Stripe stripe : stripes)
+      stripe.clear();
+  }
+
+  private static class Stripe extends LinkedHashMap<CacheKey, Verdict> {
+    private static final long serialVersionUID = 1L;
+    private final int maxSize;
+
+    Stripe(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    synchronized Verdict get(CacheKey key) {
+      return super.get(key);
+    }
+
+    @Override
+    public synchronized Verdict put(CacheKey key, Verdict value) {
+      return super.put(key, value);
+    }
+
+    @Override
+    public synchronized int size() {
+      return super.size();
+    }
+
+    @Override
+    public synchronized void clear() {
+      super.clear();
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<CacheKey, Verdict> eldest) {
+      return size() > maxSize;
+    }
+  }
+
+  private static class Verdict {
+    final SignatureMatcher matcher;
+    final String pattern;
+
+    Verdict(SignatureMatcher matcher, String pattern) {
+      this.matcher = matcher;
+      this.pattern = pattern;
+    }
+  }
+
+  /**
+   * It collects normalized values for a key. Once the values are too long to be a key, it matches them instead,
+   * so visiting goes on without a second scan.
+   */
+  private class KeyCollector implements StringMemberVisitor {
+    final SignatureMatcher matcher;
+    final List<String> strings = new ArrayList<>();
+    int length;
+    boolean cacheable = true;
+    String pattern;
+
+    KeyCollector(SignatureMatcher matcher) {
+      this.matcher = matcher;
+    }
+
+    @Override
+    public boolean visit(String value) {
+      if (cacheable) {
+        length += value.length();
+        if (length <= maxKeyLength) {
+          strings.add(SignatureMatcher.normalize(value));
+          return true;
+        }
+        cacheable = false;
+        pattern = firstMatch(matcher, strings);
+        if (pattern != null)
+          return false;
+      }
+      pattern = matcher.firstMatch(value);
+      return pattern == null;
+    }
+  }
+}
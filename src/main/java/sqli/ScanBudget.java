@@ -0,0 +1,234 @@
+package sqli;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author qwefgh90
+ * Limits of a single scan of {@link SQLiPatternChecker}, which bound the time spent on a parameter object.
+ * <br>1. <code>maxDepth</code> - the maximum nesting of containers and objects
+ * <br>2. <code>maxStrings</code> - the maximum number of string members
+ * <br>3. <code>maxChars</code> - the maximum total length of string members
+ * <br>4. <code>maxNanos</code> - the maximum time of a scan
+ * <br>When any limit is exceeded, scanning stops and the {@link Policy} of the {@link Limit} applies, e.g. reject
+ * a parameter which is nested too deeply but only log a scan which takes too long.
+ * <br>Type rules decide which objects are visited field by field. A rule is a class name, or a package name
+ * followed by <code>.*</code> which also matches sub packages, e.g. <code>java.time.*</code>.
+ * If include rules are given, only matching classes are visited. Skip rules are applied after include rules.
+ * Containers, arrays and built-in classes of <code>java.lang</code> are always visited.
+ *
+ * <pre>
+ * SQLiPatternChecker.setScanBudget(new ScanBudget.Builder()
+ *     .maxDepth(16).maxStrings(10_000).maxNanos(TimeUnit.MILLISECONDS.toNanos(2))
+ *     .policy(ScanBudget.Policy.LOG).policy(ScanBudget.Limit.DEPTH, ScanBudget.Policy.REJECT)
+ *     .include("com.acme.dto.*").skip("java.time.*")
+ *     .build());
+ * </pre>
+ */
+public final class ScanBudget {
+
+  public enum Policy {
+    /** Throw {@link SQLInjectionException}, so the statement is rejected */
+    REJECT,
+    /** Accept members visited so far */
+    ALLOW,
+    /** Accept members visited so far and log a warning */
+    LOG
+  }
+
+  public enum Limit {
+    DEPTH("maxDepth"), STRINGS("maxStrings"), CHARS("maxChars"), TIME("maxNanos");
+
+    private final String property;
+
+    Limit(String property) {
+      this.property = property;
+    }
+
+    /**
+     * @return the name of the limit in a builder, e.g. <code>maxDepth</code>
+     */
+    public String getProperty() {
+      return property;
+    }
+  }
+
+  public static final ScanBudget UNLIMITED = new Builder().build();
+
+  private final int maxDepth;
+  private final long maxStrings;
+  private final long maxChars;
+  private final long maxNanos;
+  private final Policy policy;
+  private final Map<Limit, Policy> policies;
+  private final List<String> includes;
+  private final List<String> skips;
+  private final ClassValue<Boolean> visitedTypes = new ClassValue<>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      String name = type.getName();
+      return (includes.isEmpty() || matchesAny(includes, name)) && !matchesAny(skips, name);
+    }
+  };
+
+  private ScanBudget(Builder builder) {
+    this.maxDepth = builder.maxDepth;
+    this.maxStrings = builder.maxStrings;
+    this.maxChars = builder.maxChars;
+    this.maxNanos = builder.maxNanos;
+    this.policy = builder.policy;
+    this.policies = Collections.unmodifiableMap(new EnumMap<>(builder.policies));
+    this.includes = Collections.unmodifiableList(new ArrayList<>(builder.includes));
+    this.skips = Collections.unmodifiableList(new ArrayList<>(builder.skips));
+  }
+
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  public long getMaxStrings() {
+    return maxStrings;
+  }
+
+  public long getMaxChars() {
+    return maxChars;
+  }
+
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  /**
+   * @return the policy of limits which have no policy of their own
+   */
+  public Policy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * @param limit an exceeded limit
+   * @return the policy which applies when the limit is exceeded
+   */
+  public Policy getPolicy(Limit limit) {
+    return policies.getOrDefault(limit, policy);
+  }
+
+  public List<String> getIncludes() {
+    return includes;
+  }
+
+  public List<String> getSkips() {
+    return skips;
+  }
+
+  /**
+   * @param type a class whose instance is visited field by field
+   * @return true if fields of the class should be visited by type rules
+   */
+  public boolean isVisited(Class<?> type) {
+    return visitedTypes.get(type);
+  }
+
+  /**
+   * @return a description of a limit, e.g. <code>maxDepth=16</code>
+   */
+  String describe(Limit limit) {
+    switch (limit) {
+      case DEPTH:
+        return limit.getProperty() + "=" + maxDepth;
+      case STRINGS:
+        return limit.getProperty() + "=" + maxStrings;
+      case CHARS:
+        return limit.getProperty() + "=" + maxChars;
+      default:
+        return limit.getProperty() + "=" + maxNanos;
+    }
+  }
+
+  boolean hasTimeLimit() {
+    return maxNanos != Long.MAX_VALUE;
+  }
+
+  private static boolean matchesAny(List<String> rules, String name) {
+    for (String rule : rules) {
+      if (rule.endsWith(".*") ? name.startsWith(rule.substring(0, rule.length() - 1)) : name.equals(rule))
+        return true;
+    }
+    return false;
+  }
+
+  public static class Builder {
+    private int maxDepth = Integer.MAX_VALUE;
+    private long maxStrings = Long.MAX_VALUE;
+    private long maxChars = Long.MAX_VALUE;
+    private long maxNanos = Long.MAX_VALUE;
+    private Policy policy = Policy.REJECT;
+    private final Map<Limit, Policy> policies = new EnumMap<>(Limit.class);
+    private final List<String> includes = new ArrayList<>();
+    private final List<String> skips = new ArrayList<>();
+
+    public Builder maxDepth(int maxDepth) {
+      this.maxDepth = maxDepth;
+      return this;
+    }
+
+    public Builder maxStrings(long maxStrings) {
+      this.maxStrings = maxStrings;
+      return this;
+    }
+
+    public Builder maxChars(long maxChars) {
+      this.maxChars = maxChars;
+      return this;
+    }
+
+    public Builder maxNanos(long maxNanos) {
+      this.maxNanos = maxNanos;
+      return this;
+    }
+
+    /**
+     * @param policy a policy of limits which have no policy of their own. {@link Policy#REJECT} by default.
+     * @return this builder
+     */
+    public Builder policy(Policy policy) {
+      this.policy = policy;
+      return this;
+    }
+
+    /**
+     * @param limit
+     * @param policy a policy which applies when the limit is exceeded
+     * @return this builder
+     */
+    public Builder policy(Limit limit, Policy policy) {
+      policies.put(limit, policy);
+      return this;
+    }
+
+    /**
+     * @param rules class names, or package names followed by <code>.*</code>
+     * @return this builder
+     */
+    public Builder include(String... rules) {
+      Collections.addAll(includes, rules);
+      return this;
+    }
+
+    /**
+     * @param rules class names, or package names followed by <code>.*</code>
+     * @return this builder
+     */
+    public Builder skip(String... rules) {
+      Collections.addAll(skips, rules);
+      return this;
+    }
+
+    public ScanBudget build() {
+      return new ScanBudget(this);
+    }
+  }
+}
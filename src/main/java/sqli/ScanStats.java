@@ -0,0 +1,31 @@
+package sqli;
+
+/**
+ * @author qwefgh90
+ * Counts of string members visited while a parameter object is checked. It is not thread-safe,
+ * and is used by a single check on a request thread.
+ */
+public final class ScanStats {
+
+  private long strings;
+  private long chars;
+
+  void add(long strings, long chars) {
+    this.strings += strings;
+    this.chars += chars;
+  }
+
+  /**
+   * @return the number of string members visited
+   */
+  public long getStrings() {
+    return strings;
+  }
+
+  /**
+   * @return the total length of string members visited
+   */
+  public long getChars() {
+    return chars;
+  }
+}
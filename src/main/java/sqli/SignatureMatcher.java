@@ -0,0 +1,409 @@
+package sqli;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author qwefgh90
+ * A multi-pattern matcher (Aho-Corasick automaton) over normalized signatures.
+ * <br>1. Every signature is normalized once (whitespace removed, lowercased) and inserted into a trie.
+ * <br>2. Failure links are computed so that a text is scanned in a single linear pass.
+ * <br>3. The text is normalized on the fly, so matching does not allocate.
+ */
+public final class SignatureMatcher {
+
+  private static final int ROOT = 0;
+  private static final int NONE = -1;
+  private static final int ASCII = 128;
+  private static final int MAGIC = 0x53514C49; // SQLI
+  private static final int VERSION = 1;
+
+  private final String[] signatures;
+  // transitions of a state s are edgeChars/edgeTargets[edgeStart[s] .. edgeStart[s + 1]), sorted by char
+  private final int[] edgeStart;
+  private final char[] edgeChars;
+  private final int[] edgeTargets;
+  private final int[] rootTargets;
+  private final int[] failure;
+  // index of the signature ending at a state, or NONE
+  private final int[] output;
+  // index of the first signature ending at a state or one of its suffixes, or NONE
+  private final int[] firstOutput;
+  // the nearest suffix state that has an output, or NONE
+  private final int[] outputLink;
+
+  SignatureMatcher(String[] signatures, int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] failure,
+      int[] output) {
+    this.signatures = signatures;
+    this.edgeStart = edgeStart;
+    this.edgeChars = edgeChars;
+    this.edgeTargets = edgeTargets;
+    this.failure = failure;
+    this.output = output;
+    this.rootTargets = new int[ASCII];
+    Arrays.fill(rootTargets, ROOT);
+    for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+      if (edgeChars[e] < ASCII) {
+        rootTargets[edgeChars[e]] = edgeTargets[e];
+      }
+    }
+    int states = failure.length;
+    this.firstOutput = new int[states];
+    this.outputLink = new int[states];
+    // failure links always point to shallower states, so a breadth-first order resolves them first
+    for (int state : breadthFirstOrder()) {
+      int suffix = failure[state];
+      if (state == ROOT) {
+        firstOutput[state] = output[state];
+        outputLink[state] = NONE;
+      } else {
+        firstOutput[state] = output[state] != NONE ? output[state] : firstOutput[suffix];
+        outputLink[state] = output[suffix] != NONE ? suffix : outputLink[suffix];
+      }
+    }
+  }
+
+  /**
+   * Compile signatures into an automaton. Signatures which are empty after normalization are ignored.
+   *
+   * @param signatures
+   * @return a matcher which reports the original signatures
+   */
+  public static SignatureMatcher compile(Collection<String> signatures) {
+    List<String> kept = new ArrayList<>();
+    List<Map<Character, Integer>> trie = new ArrayList<>();
+    List<Integer> outputs = new ArrayList<>();
+    trie.add(new TreeMap<>());
+    outputs.add(NONE);
+    for (String signature : signatures) {
+      int state = ROOT;
+      boolean empty = true;
+      for (int i = 0; i < signature.length(); i++) {
+        char c = signature.charAt(i);
+        if (isWhitespace(c)) {
+          continue;
+        }
+        empty = false;
+        Character key = Character.toLowerCase(c);
+        Integer next = trie.get(state).get(key);
+        if (next == null) {
+          next = trie.size();
+          trie.add(new TreeMap<>());
+          outputs.add(NONE);
+          trie.get(state).put(key, next);
+        }
+        state = next;
+      }
+      if (!empty && outputs.get(state) == NONE) { // keep the first of duplicated signatures
+        outputs.set(state, kept.size());
+        kept.add(signature);
+      }
+    }
+
+    int states = trie.size();
+    int[] edgeStart = new int[states + 1];
+    for (int s = 0; s < states; s++) {
+      edgeStart[s + 1] = edgeStart[s] + trie.get(s).size();
+    }
+    char[] edgeChars = new char[edgeStart[states]];
+    int[] edgeTargets = new int[edgeStart[states]];
+    for (int s = 0; s < states; s++) {
+      int e = edgeStart[s];
+      for (Map.Entry<Character, Integer> edge : trie.get(s).entrySet()) {
+        edgeChars[e] = edge.getKey();
+        edgeTargets[e] = edge.getValue();
+        e++;
+      }
+    }
+
+    int[] failure = new int[states];
+    Deque<Integer> queue = new ArrayDeque<>();
+    for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+      failure[edgeTargets[e]] = ROOT;
+      queue.add(edgeTargets[e]);
+    }
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+        int child = edgeTargets[e];
+        int suffix = failure[state];
+        int target = goTo(edgeStart, edgeChars, edgeTargets, suffix, edgeChars[e]);
+        while (target == NONE && suffix != ROOT) {
+          suffix = failure[suffix];
+          target = goTo(edgeStart, edgeChars, edgeTargets, suffix, edgeChars[e]);
+        }
+        failure[child] = target == NONE ? ROOT : target;
+        queue.add(child);
+      }
+    }
+
+    int[] output = new int[states];
+    for (int s = 0; s < states; s++) {
+      output[s] = outputs.get(s);
+    }
+    return new SignatureMatcher(kept.toArray(new String[0]), edgeStart, edgeChars, edgeTargets, failure, output);
+  }
+
+  /**
+   * Scan a text once and stop at the earliest position where any signature ends.
+   *
+   * @param text
+   * @return a matched signature, or null if none of signatures is found
+   */
+  public String firstMatch(CharSequence text) {
+    int state = ROOT;
+    for (int i = 0, length = text.length(); i < length; i++) {
+      char c = text.charAt(i);
+      if (isWhitespace(c)) {
+        continue;
+      }
+      state = next(state, Character.toLowerCase(c));
+      if (firstOutput[state] != NONE) {
+        return signatures[firstOutput[state]];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Scan a text once and collect every signature found in it.
+   *
+   * @param text
+   * @return matched signatures in order of their end position. The list is empty if nothing is found.
+   */
+  public List<String> allMatches(CharSequence text) {
+    List<String> matches = new ArrayList<>();
+    boolean[] reported = null;
+    int state = ROOT;
+    for (int i = 0, length = text.length(); i < length; i++) {
+      char c = text.charAt(i);
+      if (isWhitespace(c)) {
+        continue;
+      }
+      state = next(state, Character.toLowerCase(c));
+      for (int s = output[state] != NONE ? state : outputLink[state]; s != NONE; s = outputLink[s]) {
+        if (reported == null) {
+          reported = new boolean[signatures.length];
+        }
+        if (!reported[output[s]]) {
+          reported[output[s]] = true;
+          matches.add(signatures[output[s]]);
+        }
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * @return the number of distinct signatures in this matcher
+   */
+  public int size() {
+    return signatures.length;
+  }
+
+  /**
+   * @return distinct signatures in this matcher
+   */
+  public List<String> getSignatures() {
+    return List.of(signatures);
+  }
+
+  /**
+   * Write this automaton in a binary format, which can be read by {@link BinarySignatureSource}.
+   *
+   * @param path
+   * @throws IOException
+   */
+  public void writeTo(Path path) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(signatures.length);
+      for (String signature : signatures) {
+        out.writeInt(signature.length());
+        out.writeChars(signature);
+      }
+      out.writeInt(failure.length);
+      out.writeInt(edgeChars.length);
+      writeInts(out, edgeStart);
+      for (char c : edgeChars) {
+        out.writeChar(c);
+      }
+      writeInts(out, edgeTargets);
+      writeInts(out, failure);
+      writeInts(out, output);
+    }
+  }
+
+  /**
+   * Read an automaton written by {@link #writeTo(Path)}.
+   *
+   * @param buffer
+   * @return a matcher
+   * @throws IOException if the buffer is not in the binary format
+   */
+  public static SignatureMatcher readFrom(ByteBuffer buffer) throws IOException {
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        throw new IOException("Not a compiled signature file of version " + VERSION);
+      }
+      String[] signatures = new String[buffer.getInt()];
+      for (int i = 0; i < signatures.length; i++) {
+        signatures[i] = new String(readChars(buffer, buffer.getInt()));
+      }
+      int states = buffer.getInt();
+      int edges = buffer.getInt();
+      int[] edgeStart = readInts(buffer, states + 1);
+      char[] edgeChars = readChars(buffer, edges);
+      int[] edgeTargets = readInts(buffer, edges);
+      int[] failure = readInts(buffer, states);
+      int[] output = readInts(buffer, states);
+      validate(signatures.length, edgeStart, edgeChars, edgeTargets, failure, output);
+      return new SignatureMatcher(signatures, edgeStart, edgeChars, edgeTargets, failure, output);
+    } catch (BufferUnderflowException | NegativeArraySizeException e) {
+      throw new IOException("A compiled signature file is broken. Cause: " + e, e);
+    }
+  }
+
+  /**
+   * A broken file must not make {@link #next(int, char)} loop forever or miss signatures, so failure links must lead
+   * to the root through shallower states and transitions of each state must be sorted for a binary search.
+   */
+  private static void validate(int signatures, int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] failure,
+      int[] output) throws IOException {
+    int states = failure.length;
+    if (states == 0 || edgeStart[ROOT] != 0 || edgeStart[states] != edgeTargets.length) {
+      throw new IOException("A compiled signature file is broken. Cause: invalid transitions");
+    }
+    for (int s = 0; s < states; s++) {
+      if (edgeStart[s] > edgeStart[s + 1] || failure[s] < 0 || failure[s] >= states || output[s] < NONE
+          || output[s] >= signatures) {
+        throw new IOException("A compiled signature file is broken. Cause: invalid state " + s);
+      }
+      for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+        // a child is always created after its parent, so the trie has no cycle
+        if (edgeTargets[e] <= s || edgeTargets[e] >= states
+            || e > edgeStart[s] && edgeChars[e - 1] >= edgeChars[e]) {
+          throw new IOException("A compiled signature file is broken. Cause: invalid transition " + e);
+        }
+      }
+    }
+    // depths in a breadth-first order, in which every state is reached once from the root
+    int[] depth = new int[states];
+    Arrays.fill(depth, NONE);
+    depth[ROOT] = 0;
+    for (int s = 0; s < states; s++) {
+      if (depth[s] == NONE) {
+        throw new IOException("A compiled signature file is broken. Cause: unreachable state " + s);
+      }
+      for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+        if (depth[edgeTargets[e]] != NONE) {
+          throw new IOException("A compiled signature file is broken. Cause: invalid transition " + e);
+        }
+        depth[edgeTargets[e]] = depth[s] + 1;
+      }
+    }
+    if (failure[ROOT] != ROOT) {
+      throw new IOException("A compiled signature file is broken. Cause: invalid failure link of the root");
+    }
+    for (int s = ROOT + 1; s < states; s++) {
+      if (depth[failure[s]] >= depth[s]) {
+        throw new IOException("A compiled signature file is broken. Cause: invalid failure link of state " + s);
+      }
+    }
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  private static char[] readChars(ByteBuffer buffer, int length) {
+    if (length < 0 || length > buffer.remaining() / Character.BYTES) {
+      throw new BufferUnderflowException();
+    }
+    char[] values = new char[length];
+    buffer.asCharBuffer().get(values);
+    buffer.position(buffer.position() + length * Character.BYTES);
+    return values;
+  }
+
+  private static int[] readInts(ByteBuffer buffer, int length) {
+    if (length < 0 || length > buffer.remaining() / Integer.BYTES) {
+      throw new BufferUnderflowException();
+    }
+    int[] values = new int[length];
+    buffer.asIntBuffer().get(values);
+    buffer.position(buffer.position() + length * Integer.BYTES);
+    return values;
+  }
+
+  private int next(int state, char c) {
+    while (true) {
+      int target = state == ROOT && c < ASCII ? rootTargets[c] : goTo(edgeStart, edgeChars, edgeTargets, state, c);
+      if (target != NONE) {
+        return target;
+      }
+      if (state == ROOT) {
+        return ROOT;
+      }
+      state = failure[state];
+    }
+  }
+
+  private static int goTo(int[] edgeStart, char[] edgeChars, int[] edgeTargets, int state, char c) {
+    int index = Arrays.binarySearch(edgeChars, edgeStart[state], edgeStart[state + 1], c);
+    return index >= 0 ? edgeTargets[index] : NONE;
+  }
+
+  private List<Integer> breadthFirstOrder() {
+    List<Integer> order = new ArrayList<>(failure.length);
+    order.add(ROOT);
+    for (int i = 0; i < order.size(); i++) {
+      int state = order.get(i);
+      for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+        order.add(edgeTargets[e]);
+      }
+    }
+    return order;
+  }
+
+  /**
+   * Normalize a text the way signatures and scanned texts are normalized.
+   * Matching the normalized text gives the same result as matching the text.
+   *
+   * @param text
+   * @return the text without whitespace, lowercased
+   */
+  public static String normalize(CharSequence text) {
+    StringBuilder normalized = new StringBuilder(text.length());
+    for (int i = 0, length = text.length(); i < length; i++) {
+      char c = text.charAt(i);
+      if (!isWhitespace(c)) {
+        normalized.append(Character.toLowerCase(c));
+      }
+    }
+    return normalized.toString();
+  }
+
+  /**
+   * The same characters as <code>\s</code> in {@link java.util.regex.Pattern}
+   */
+  static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+}
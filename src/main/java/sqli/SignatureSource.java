@@ -0,0 +1,33 @@
+package sqli;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * @author qwefgh90
+ * A source of SQL injection signatures for {@link SQLiPatternChecker}.
+ * <br>Signatures can come from the classpath ({@link ClassPathSignatureSource}), a file ({@link FileSignatureSource}),
+ * a precompiled binary file ({@link BinarySignatureSource}) or a list given by {@link #of(List)}.
+ */
+@FunctionalInterface
+public interface SignatureSource {
+
+  /**
+   * @return signatures. Each signature is normalized when it is compiled.
+   * @throws IOException if signatures cannot be read
+   */
+  List<String> load() throws IOException;
+
+  /**
+   * @return a matcher compiled from signatures
+   * @throws IOException if signatures cannot be read
+   */
+  default SignatureMatcher compile() throws IOException {
+    return SignatureMatcher.compile(load());
+  }
+
+  static SignatureSource of(List<String> signatures) {
+    List<String> copy = List.copyOf(signatures);
+    return () -> copy;
+  }
+}
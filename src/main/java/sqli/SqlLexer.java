@@ -0,0 +1,246 @@
+package sqli;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author qwefgh90
+ * A small SQL lexer which splits a text into strings, quoted identifiers, comments, operators, keywords and so on.
+ * <br>1. The lexer is a cursor. {@link #next()} returns the type of the next token, and its range is given by
+ * {@link #start()} and {@link #end()}, so tokens are not allocated.
+ * <br>2. A text is scanned once from left to right.
+ * <br>3. Strings follow standard SQL, i.e. a quote is escaped by doubling it.
+ * A backslash is not an escape character, which {@link SqlStructureDetector} checks separately.
+ */
+public final class SqlLexer {
+
+  public enum TokenType {
+    IDENTIFIER, KEYWORD, NUMBER, STRING, QUOTED_IDENTIFIER, OPERATOR, COMMA, DOT, LEFT_PAREN, RIGHT_PAREN, SEMICOLON,
+    COMMENT,
+    /** A string, a quoted identifier or a block comment which is not closed until the end of a text */
+    UNTERMINATED
+  }
+
+  // reserved words which change the structure of a statement by themselves, grouped by length.
+  // Words which only modify another keyword, e.g. left of left join or desc of order by, and words which are also
+  // names of functions or common columns, e.g. replace, mod or end, are identifiers.
+  private static final String[][] KEYWORDS = groupByLength("select", "insert", "update", "delete", "merge", "drop",
+      "create", "alter", "truncate", "rename", "grant", "revoke", "union", "intersect", "except", "minus", "from",
+      "where", "having", "group", "order", "by", "limit", "offset", "fetch", "into", "values", "and", "or", "not",
+      "xor", "like", "rlike", "regexp", "between", "in", "is", "exists", "case", "when", "then", "else", "join", "on",
+      "using", "as", "distinct", "exec", "execute", "call", "declare", "waitfor", "delay", "begin", "commit",
+      "rollback", "procedure", "outfile", "dumpfile", "shutdown");
+
+  private String text;
+  private int position;
+  private int start;
+  private int end;
+
+  public SqlLexer() {
+    reset("");
+  }
+
+  /**
+   * Start over with a text, which starts in code.
+   *
+   * @param text
+   * @return this lexer
+   */
+  public SqlLexer reset(String text) {
+    this.text = text;
+    this.position = 0;
+    this.start = 0;
+    this.end = 0;
+    return this;
+  }
+
+  /**
+   * @return the type of the next token, or null at the end of a text
+   */
+  public TokenType next() {
+    int length = text.length();
+    while (position < length && Character.isWhitespace(text.charAt(position))) {
+      position++;
+    }
+    if (position >= length) {
+      start = end = length;
+      return null;
+    }
+    start = position;
+    char c = text.charAt(position);
+    TokenType type;
+    if (c == '\'') {
+      type = quoted('\'', TokenType.STRING);
+    } else if (c == '"' || c == '`') {
+      type = quoted(c, TokenType.QUOTED_IDENTIFIER);
+    } else if (startsLineComment(position)) {
+      int newline = text.indexOf('\n', position);
+      position = newline < 0 ? length : newline + 1;
+      type = TokenType.COMMENT;
+    } else if (startsBlockComment(position)) {
+      int close = text.indexOf("*/", position + 2);
+      position = close < 0 ? length : close + 2;
+      type = close < 0 ? TokenType.UNTERMINATED : TokenType.COMMENT;
+    } else if (isDigit(c) || c == '.' && position + 1 < length && isDigit(text.charAt(position + 1))) {
+      number();
+      type = TokenType.NUMBER;
+    } else if (Character.isLetter(c) || c == '_') {
+      position++;
+      while (position < length && isIdentifierPart(text.charAt(position))) {
+        position++;
+      }
+      type = isKeyword(text, start, position) ? TokenType.KEYWORD : TokenType.IDENTIFIER;
+    } else if (isOperator(c)) {
+      position++;
+      // a comment right after an operator, e.g. "=--", is a separate token
+      while (position < length && isOperator(text.charAt(position)) && !startsLineComment(position)
+          && !startsBlockComment(position)) {
+        position++;
+      }
+      type = TokenType.OPERATOR;
+    } else {
+      position++;
+      type = punctuation(c);
+    }
+    end = position;
+    return type;
+  }
+
+  /**
+   * @return the start index of the current token
+   */
+  public int start() {
+    return start;
+  }
+
+  /**
+   * @return the end index (exclusive) of the current token
+   */
+  public int end() {
+    return end;
+  }
+
+  /**
+   * @param word a word in lowercase
+   * @return true if the current token is the word, ignoring case
+   */
+  public boolean is(String word) {
+    return end - start == word.length() && text.regionMatches(true, start, word, 0, word.length());
+  }
+
+  private TokenType quoted(char quote, TokenType type) {
+    int length = text.length();
+    position++;
+    while (position < length) {
+      if (text.charAt(position++) == quote) {
+        if (position < length && text.charAt(position) == quote) {
+          position++;
+        } else {
+          return type;
+        }
+      }
+    }
+    return TokenType.UNTERMINATED;
+  }
+
+  private void number() {
+    int length = text.length();
+    if (text.startsWith("0x", position) || text.startsWith("0X", position)) {
+      position += 2;
+      while (position < length && Character.digit(text.charAt(position), 16) >= 0) {
+        position++;
+      }
+      return;
+    }
+    position = digits(position);
+    if (position < length && text.charAt(position) == '.') {
+      position = digits(position + 1);
+    }
+    if (position + 1 < length && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+      int exponent = position + 1;
+      if (text.charAt(exponent) == '+' || text.charAt(exponent) == '-') {
+        exponent++;
+      }
+      if (exponent < length && isDigit(text.charAt(exponent))) {
+        position = digits(exponent);
+      }
+    }
+  }
+
+  private int digits(int index) {
+    while (index < text.length() && isDigit(text.charAt(index))) {
+      index++;
+    }
+    return index;
+  }
+
+  private boolean startsLineComment(int index) {
+    char c = text.charAt(index);
+    return c == '#' || c == '-' && index + 1 < text.length() && text.charAt(index + 1) == '-';
+  }
+
+  private boolean startsBlockComment(int index) {
+    return text.charAt(index) == '/' && index + 1 < text.length() && text.charAt(index + 1) == '*';
+  }
+
+  private static TokenType punctuation(char c) {
+    switch (c) {
+      case ',':
+        return TokenType.COMMA;
+      case '.':
+        return TokenType.DOT;
+      case '(':
+        return TokenType.LEFT_PAREN;
+      case ')':
+        return TokenType.RIGHT_PAREN;
+      case ';':
+        return TokenType.SEMICOLON;
+      default:
+        return TokenType.OPERATOR;  // e.g. '?', '@', ':' or an unknown character
+    }
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+
+  private static boolean isOperator(char c) {
+    return "=<>!+-*/%&|^~".indexOf(c) >= 0;
+  }
+
+  private static boolean isKeyword(String text, int start, int end) {
+    int length = end - start;
+    if (length >= KEYWORDS.length) {
+      return false;
+    }
+    for (String keyword : KEYWORDS[length]) {
+      if (text.regionMatches(true, start, keyword, 0, length)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String[][] groupByLength(String... keywords) {
+    int max = 0;
+    for (String keyword : keywords) {
+      max = Math.max(max, keyword.length());
+    }
+    List<List<String>> groups = new ArrayList<>();
+    for (int i = 0; i <= max; i++) {
+      groups.add(new ArrayList<>());
+    }
+    for (String keyword : keywords) {
+      groups.get(keyword.length()).add(keyword);
+    }
+    String[][] result = new String[max + 1][];
+    for (int i = 0; i <= max; i++) {
+      result[i] = groups.get(i).toArray(new String[0]);
+    }
+    return result;
+  }
+}
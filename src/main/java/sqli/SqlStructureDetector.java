@@ -0,0 +1,272 @@
+package sqli;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.SubstitutionContext;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author qwefgh90
+ * Find attacks by the token structure of SQL instead of signatures
+ * <br>1. A lexical context of each <code>${}</code> in a template is worked out when a {@link DynamicSqlSource} is built.
+ * <br>2. A value in a string or a quoted identifier must not close it, and a value in a comment must not end it.
+ * <br>3. A value in code must be a list of operands, e.g. <code>name desc, 2</code> or <code>users as u</code>.
+ * Operands are identifiers with an optional alias, numbers and strings. Keywords which change the structure of a
+ * statement by themselves, e.g. <code>or</code>, <code>union</code> or a subquery <code>select</code>, operators
+ * including arithmetic, comments and semicolons are reported.
+ * <br>4. A function call, e.g. <code>lower(name)</code> or <code>count(*)</code>, is reported unless the function is
+ * allowed by {@link #setAllowedFunctions(Collection)}, because calls like <code>sleep(5)</code> or
+ * <code>extractvalue(1, concat(0x7e, version()))</code> attack without changing the structure. No function is allowed
+ * by default.
+ * <br>5. Unlike signatures, a value like <code>O'Brien</code> bound with <code>#{}</code> is never reported,
+ * and comments or encodings which are not in a signature list are still found.
+ */
+public final class SqlStructureDetector {
+
+  private static final ThreadLocal<SqlLexer> LEXER = ThreadLocal.withInitial(SqlLexer::new);
+  private static volatile Set<String> allowedFunctions = Collections.emptySet();
+
+  private SqlStructureDetector() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * @param functions names of functions which values in code can call, ignoring case, e.g. <code>lower</code>.
+   * Arguments of an allowed function are checked as operands as well.
+   */
+  public static void setAllowedFunctions(Collection<String> functions) {
+    Set<String> names = new HashSet<>();
+    for (String function : functions)
+      names.add(function.trim().toLowerCase(Locale.ENGLISH));
+    allowedFunctions = Collections.unmodifiableSet(names);
+  }
+
+  public static Set<String> getAllowedFunctions() {
+    return allowedFunctions;
+  }
+
+  /**
+   * @param mappedStatement
+   * @param parameterObject a parameter object which is passed to an executor
+   * @return a description of the violation, or null if no substituted value changes the structure.
+   * If contexts cannot be determined, e.g. for a provider, the whole parameter object is checked by signatures.
+   */
+  public static String check(MappedStatement mappedStatement, Object parameterObject) {
+    return check(mappedStatement, parameterObject, null);
+  }
+
+  /**
+   * @param mappedStatement
+   * @param parameterObject a parameter object which is passed to an executor
+   * @param stats counts of visited members are added to it. It can be null.
+   * @return a description of the violation, or null if no substituted value changes the structure
+   */
+  public static String check(MappedStatement mappedStatement, Object parameterObject, ScanStats stats) {
+    SqlSource sqlSource = mappedStatement.getSqlSource();
+    if (sqlSource instanceof RawSqlSource || sqlSource instanceof StaticSqlSource)
+      return null;   // No string substitution at all
+    Map<String, Set<SubstitutionContext>> contexts = sqlSource instanceof DynamicSqlSource
+        ? ((DynamicSqlSource) sqlSource).getSubstitutionContexts() : null;
+    if (contexts == null) {
+      String pattern = SQLiPatternChecker.containsSQLInjectionPattern(parameterObject, stats);
+      return pattern == null ? null : "matches a SQL injection pattern: [ " + pattern + " ]";
+    }
+    if (contexts.isEmpty())
+      return null;
+
+    DynamicContext context = SubstitutedValues.newContext(mappedStatement, parameterObject);
+    SqlLexer lexer = LEXER.get();
+    String[] violation = new String[1];
+    for (Map.Entry<String, Set<SubstitutionContext>> entry : contexts.entrySet()) {
+      Object value = SubstitutedValues.evaluateOrNull(entry.getKey(), context);
+      SQLiPatternChecker.visitAllStringMembers(value, string -> {
+        for (SubstitutionContext where : entry.getValue()) {
+          String reason = check(lexer, string, where);
+          if (reason != null) {
+            violation[0] = "changes the structure of SQL (" + reason + "): [ " + string + " ]";
+            return false;
+          }
+        }
+        return true;
+      }, stats);
+      if (violation[0] != null)
+        return violation[0];
+    }
+    return null;
+  }
+
+  /**
+   * @param value a substituted value
+   * @param context a lexical context of <code>${}</code>
+   * @return a reason why the value changes the structure of SQL, or null if it does not
+   */
+  public static String check(String value, SubstitutionContext context) {
+    return check(LEXER.get(), value, context);
+  }
+
+  private static String check(SqlLexer lexer, String value, SubstitutionContext context) {
+    switch (context) {
+      case CODE:
+        return checkCode(lexer.reset(value), value);
+      case LINE_COMMENT:
+        return value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0 ? "ends a comment" : null;
+      case BLOCK_COMMENT:
+        return value.contains("*/") ? "ends a comment" : null;
+      default:
+        return checkQuoted(value, 0, value.length(), context.getQuote());
+    }
+  }
+
+  /**
+   * A value in quotes must not close them. A backslash before a quote or at the end is rejected as well,
+   * because some databases, e.g. MySQL, escape a quote with it.
+   */
+  private static String checkQuoted(String value, int start, int end, char quote) {
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
+      if (c == '\\' && (i + 1 == end || value.charAt(i + 1) == quote)) {
+        return "escapes a quote";
+      }
+      if (c == quote) {
+        if (i + 1 < end && value.charAt(i + 1) == quote) {
+          i++;
+        } else {
+          return "closes a quote";
+        }
+      }
+    }
+    return null;
+  }
+
+  private enum State {
+    OPERAND, SIGN, DOT, AFTER_OPERAND, AFTER_NAME, AS, AFTER_ALIAS, AFTER_DIRECTION, AFTER_NULLS, AFTER_NULLS_ORDER,
+    CALL
+  }
+
+  private static String checkCode(SqlLexer lexer, String value) {
+    State state = State.OPERAND;
+    int depth = 0;
+    boolean empty = true;
+    // the range of the last name which can be a function, or -1 if it is qualified or quoted
+    int nameStart = -1;
+    int nameEnd = -1;
+    for (SqlLexer.TokenType type = lexer.next(); type != null; type = lexer.next()) {
+      empty = false;
+      switch (type) {
+        case IDENTIFIER:
+        case QUOTED_IDENTIFIER:
+          State ordering = type == SqlLexer.TokenType.IDENTIFIER && depth == 0 ? ordering(lexer, state) : null;
+          if (ordering != null) {
+            state = ordering;
+          } else if (state == State.OPERAND || state == State.CALL || state == State.DOT) {
+            boolean callable = type == SqlLexer.TokenType.IDENTIFIER && state != State.DOT;
+            nameStart = callable ? lexer.start() : -1;
+            nameEnd = lexer.end();
+            state = State.AFTER_NAME;
+          } else if (depth == 0 && (state == State.AFTER_NAME || state == State.AFTER_OPERAND || state == State.AS)) {
+            state = State.AFTER_ALIAS;  // e.g. users u
+          } else {
+            return "adjacent operands";
+          }
+          break;
+        case NUMBER:
+        case STRING:
+          if (state != State.OPERAND && state != State.CALL && (state != State.SIGN || type != SqlLexer.TokenType.NUMBER))
+            return "adjacent operands";
+          if (type == SqlLexer.TokenType.STRING && checkQuoted(value, lexer.start() + 1, lexer.end() - 1, '\'') != null)
+            return "escapes a quote";
+          state = State.AFTER_OPERAND;
+          break;
+        case DOT:
+          if (state != State.AFTER_NAME)
+            return "misplaced dot";
+          state = State.DOT;
+          break;
+        case COMMA:
+          if (state != State.AFTER_OPERAND && state != State.AFTER_NAME && state != State.AFTER_ALIAS
+              && state != State.AFTER_DIRECTION && state != State.AFTER_NULLS_ORDER)
+            return "misplaced comma";
+          state = State.OPERAND;
+          break;
+        case LEFT_PAREN:
+          if (state != State.AFTER_NAME)
+            return "misplaced parenthesis";
+          if (nameStart < 0 || !isAllowedFunction(value, nameStart, nameEnd))
+            return "function call";
+          depth++;
+          state = State.CALL;
+          break;
+        case RIGHT_PAREN:
+          if (depth == 0 || state != State.CALL && state != State.AFTER_OPERAND && state != State.AFTER_NAME)
+            return "misplaced parenthesis";
+          depth--;
+          state = State.AFTER_OPERAND;
+          break;
+        case OPERATOR:
+          if ((state == State.OPERAND || state == State.CALL) && (lexer.is("-") || lexer.is("+"))) {
+            state = State.SIGN;  // e.g. -1
+          } else if (state == State.CALL && lexer.is("*")) {  // e.g. count(*)
+            state = State.AFTER_OPERAND;
+          } else {
+            return isArithmetic(lexer) ? "arithmetic" : "operator";
+          }
+          break;
+        case KEYWORD:
+          if (state == State.CALL && lexer.is("distinct")) {  // e.g. count(distinct name)
+            state = State.OPERAND;
+          } else if (depth == 0 && (state == State.AFTER_NAME || state == State.AFTER_OPERAND) && lexer.is("as")) {
+            state = State.AS;
+          } else {
+            return "keyword";
+          }
+          break;
+        case COMMENT:
+          return "comment";
+        case SEMICOLON:
+          return "statement terminator";
+        default:
+          return "unterminated quote or comment";
+      }
+    }
+    if (empty)
+      return null;
+    if (depth != 0)
+      return "unbalanced parenthesis";
+    return state == State.AFTER_OPERAND || state == State.AFTER_NAME || state == State.AFTER_ALIAS
+        || state == State.AFTER_DIRECTION || state == State.AFTER_NULLS_ORDER ? null : "incomplete operand";
+  }
+
+  private static boolean isAllowedFunction(String value, int start, int end) {
+    Set<String> functions = allowedFunctions;
+    return !functions.isEmpty() && functions.contains(value.substring(start, end).toLowerCase(Locale.ENGLISH));
+  }
+
+  /**
+   * @return the state after <code>asc</code>, <code>desc</code>, <code>nulls</code>, <code>first</code> or
+   * <code>last</code> of an ordering, or null if the current token is not one of them there
+   */
+  private static State ordering(SqlLexer lexer, State state) {
+    boolean afterOperand = state == State.AFTER_OPERAND || state == State.AFTER_NAME;
+    if (afterOperand && (lexer.is("asc") || lexer.is("desc")))
+      return State.AFTER_DIRECTION;
+    if ((afterOperand || state == State.AFTER_DIRECTION) && lexer.is("nulls"))
+      return State.AFTER_NULLS;
+    if (state == State.AFTER_NULLS && (lexer.is("first") || lexer.is("last")))
+      return State.AFTER_NULLS_ORDER;
+    return null;
+  }
+
+  private static boolean isArithmetic(SqlLexer lexer) {
+    return lexer.is("+") || lexer.is("-") || lexer.is("*") || lexer.is("/") || lexer.is("%");
+  }
+}
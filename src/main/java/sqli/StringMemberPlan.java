@@ -0,0 +1,143 @@
+package sqli;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InaccessibleObjectException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author qwefgh90
+ * A precomputed plan to extract string members from instances of a class.
+ * <br>Plans are computed once per class and cached in a {@link ClassValue},
+ * so repeated scans of the same types do not look up fields or methods again.
+ */
+final class StringMemberPlan {
+
+  enum Kind {
+    /** Nothing to extract, e.g. {@link Object} or arrays of primitive numbers */
+    NONE,
+    /** Keys and values of a {@link Map} */
+    MAP,
+    /** Elements of an {@link Iterable} */
+    ITERABLE,
+    /** Elements of an array of objects */
+    ARRAY,
+    /** Characters of a char[] */
+    CHARS,
+    /** A built-in class of java.lang whose toString() is the value itself */
+    BUILT_IN,
+    /** Any other class whose fields are visited */
+    OBJECT
+  }
+
+  private static final Set<Class<?>> VALUE_TYPES = Set.of(String.class, Boolean.class, Character.class, Byte.class,
+      Short.class, Integer.class, Long.class, Float.class, Double.class);
+
+  private static final ClassValue<StringMemberPlan> PLANS = new ClassValue<>() {
+    @Override
+    protected StringMemberPlan computeValue(Class<?> type) {
+      return new StringMemberPlan(type);
+    }
+  };
+
+  private final Kind kind;
+  private final boolean implementsToString;
+  // fields of primitive, boxed or String types, whose values are extracted as they are
+  private final Field[] valueFields;
+  // fields of other types, whose values are visited recursively
+  private final Field[] childFields;
+
+  private StringMemberPlan(Class<?> type) {
+    List<Field> values = new ArrayList<>();
+    List<Field> children = new ArrayList<>();
+    boolean toString = false;
+    if (type.equals(Object.class)) {
+      kind = Kind.NONE;
+    } else if (Map.class.isAssignableFrom(type)) {
+      kind = Kind.MAP;
+    } else if (Iterable.class.isAssignableFrom(type)) {
+      kind = Kind.ITERABLE;
+    } else if (type.isArray()) {
+      Class<?> componentType = type.getComponentType();
+      if (!componentType.isPrimitive()) {
+        kind = Kind.ARRAY;
+      } else if (componentType.equals(char.class)) {
+        kind = Kind.CHARS;
+      } else {
+        kind = Kind.NONE;
+      }
+    } else if (isBuiltIn(type)) {
+      kind = Kind.BUILT_IN;
+    } else {
+      kind = Kind.OBJECT;
+      for (Class<?> current = type; current != null && !current.equals(Object.class); current = current.getSuperclass()) {
+        if (isBuiltIn(current)) {  // e.g. Enum, Record or Number
+          toString = true;
+          break;
+        }
+        toString |= declaresToString(current);
+        for (Field field : current.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          try {
+            field.setAccessible(true);
+          } catch (InaccessibleObjectException | SecurityException e) {
+            continue;
+          }
+          if (isValueType(field.getType())) {
+            values.add(field);
+          } else {
+            children.add(field);
+          }
+        }
+      }
+    }
+    this.implementsToString = toString;
+    this.valueFields = values.toArray(new Field[0]);
+    this.childFields = children.toArray(new Field[0]);
+  }
+
+  static StringMemberPlan of(Class<?> type) {
+    return PLANS.get(type);
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * @return true if the class or one of its super classes (except {@link Object}) implements toString()
+   */
+  boolean implementsToString() {
+    return implementsToString;
+  }
+
+  Field[] getValueFields() {
+    return valueFields;
+  }
+
+  Field[] getChildFields() {
+    return childFields;
+  }
+
+  private static boolean isBuiltIn(Class<?> type) {
+    return type.getPackageName().startsWith("java.lang");
+  }
+
+  private static boolean isValueType(Class<?> type) {
+    return type.isPrimitive() || VALUE_TYPES.contains(type);
+  }
+
+  private static boolean declaresToString(Class<?> type) {
+    try {
+      type.getDeclaredMethod("toString");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+}
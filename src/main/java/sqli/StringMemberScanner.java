@@ -0,0 +1,338 @@
+package sqli;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author qwefgh90
+ * Visit an object graph and feed every string member into a {@link StringMemberVisitor} as soon as it is found.
+ * <br>1. Nothing is collected, so visiting stops at the first member which the visitor rejects.
+ * <br>2. Visited objects are tracked by identity, so equals() and hashCode() of parameters are never called.
+ * <br>3. The identity set is created only when a container or an object is found.
+ * <br>4. Visiting stops as well when a {@link ScanBudget} is exceeded, which is reported by {@link #getExceededBudget()}.
+ * <br>5. With {@link ParallelScan}, large containers are split into chunks, and each chunk is visited by its own
+ * scanner on a pool. Chunks share counters of the budget and stop together, so the visitor must be thread-safe.
+ * Objects visited before the split are skipped by chunks, but an object first found by chunks can be visited by each.
+ */
+final class StringMemberScanner {
+
+  // the clock is read once every this number of steps
+  private static final int CLOCK_INTERVAL = 64;
+
+  private final StringMemberVisitor visitor;
+  private final ScanBudget budget;
+  private final long deadline;
+  // null in a serial scan and in a chunk, which never splits again
+  private final ParallelScan parallelScan;
+  // state shared by chunks of a split container, null in the scanner which splits it
+  private final Split split;
+  // objects visited before a container was split. It is read-only while chunks run.
+  private final Set<Object> splitVisitedObjects;
+  private Set<Object> visitedObjects;
+  private int depth;
+  private long strings;
+  private long chars;
+  private int steps;
+  private ScanBudget.Limit exceededLimit;
+  // counts of a chunk which have been added to the split
+  private long publishedStrings;
+  private long publishedChars;
+  // counts of the other chunks and the scanner which has split a container, as of the last publication
+  private long otherStrings;
+  private long otherChars;
+
+  StringMemberScanner(StringMemberVisitor visitor) {
+    this(visitor, ScanBudget.UNLIMITED);
+  }
+
+  StringMemberScanner(StringMemberVisitor visitor, ScanBudget budget) {
+    this(visitor, budget, ParallelScan.DISABLED);
+  }
+
+  StringMemberScanner(StringMemberVisitor visitor, ScanBudget budget, ParallelScan parallelScan) {
+    this.visitor = visitor;
+    this.budget = budget;
+    this.deadline = budget.hasTimeLimit() ? System.nanoTime() + budget.getMaxNanos() : 0;
+    this.parallelScan = parallelScan.isEnabled() ? parallelScan : null;
+    this.split = null;
+    this.splitVisitedObjects = null;
+  }
+
+  private StringMemberScanner(StringMemberScanner parent, Split split) {
+    this.visitor = parent.visitor;
+    this.budget = parent.budget;
+    this.deadline = parent.deadline;
+    this.parallelScan = null;
+    this.split = split;
+    this.splitVisitedObjects = parent.visitedObjects;
+    this.depth = parent.depth;
+    this.otherStrings = split.baseStrings + split.strings.get();
+    this.otherChars = split.baseChars + split.chars.get();
+  }
+
+  /**
+   * @return a description of the exceeded limit, or null if no limit has been exceeded
+   */
+  String getExceededBudget() {
+    return exceededLimit == null ? null : budget.describe(exceededLimit);
+  }
+
+  /**
+   * @return the exceeded limit, or null if no limit has been exceeded
+   */
+  ScanBudget.Limit getExceededLimit() {
+    return exceededLimit;
+  }
+
+  long getStrings() {
+    return strings;
+  }
+
+  long getChars() {
+    return chars;
+  }
+
+  /**
+   * @param target
+   * @return true if all members have been visited. false if the visitor has stopped visiting.
+   */
+  boolean scan(Object target) {
+    if (target == null)
+      return true;
+    StringMemberPlan plan = StringMemberPlan.of(target.getClass());  // A cached plan of the class
+    switch (plan.getKind()) {
+      case BUILT_IN:
+        return visit(target.toString());
+      case CHARS:
+        return visit(new String((char[]) target));
+      case NONE:
+        return true;
+      case OBJECT:
+        if (!budget.isVisited(target.getClass()))  // Skipped by type rules
+          return true;
+        break;
+      default:
+        break;
+    }
+    if (!markVisited(target))   // Skip if an object has been already visited.
+      return true;
+    if (depth >= budget.getMaxDepth())
+      return exceed(ScanBudget.Limit.DEPTH);
+    if (!tick())
+      return false;
+
+    depth++;
+    try {
+      return scanMembers(target, plan);
+    } finally {
+      depth--;
+    }
+  }
+
+  private boolean scanMembers(Object target, StringMemberPlan plan) {
+    if (parallelScan != null && sizeOf(target, plan) >= parallelScan.getThreshold())
+      return scanInParallel(target, plan);
+    switch (plan.getKind()) {
+      case MAP:
+        for (Map.Entry<?, ?> element : ((Map<?, ?>) target).entrySet()) {
+          if (!scan(element.getKey()) || !scan(element.getValue())) // A recursive call
+            return false;
+        }
+        return true;
+      case ITERABLE:
+        for (Object element : (Iterable<?>) target) {
+          if (!scan(element))   // A recursive call
+            return false;
+        }
+        return true;
+      case ARRAY:
+        for (Object element : (Object[]) target) {
+          if (!scan(element))   // A recursive call
+            return false;
+        }
+        return true;
+      default:
+        return scanObject(target, plan);
+    }
+  }
+
+  private boolean scanObject(Object target, StringMemberPlan plan) {
+    if (plan.implementsToString()) {     // If it or its super class implements toString()
+      String value = null;
+      try {
+        value = target.toString();
+      } catch (RuntimeException e) {
+        // A failure of toString() does not stop visiting fields
+      }
+      if (value != null && !visit(value))
+        return false;
+    }
+    try {
+      for (Field field : plan.getValueFields()) {       // Fields of String, boxed or primitive types
+        Object value = field.get(target);
+        if (value != null && !visit(value.toString()))
+          return false;
+      }
+      for (Field field : plan.getChildFields()) {       // Visit all other fields in this class and super classes
+        if (!scan(field.get(target)))   // A recursive call
+          return false;
+      }
+    } catch (IllegalAccessException e) {
+      // An unreachable block. Fields in a plan are accessible.
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of elements of a container, or -1 if it cannot be split
+   */
+  private static int sizeOf(Object target, StringMemberPlan plan) {
+    switch (plan.getKind()) {
+      case MAP:
+        return ((Map<?, ?>) target).size();
+      case ITERABLE:
+        return target instanceof Collection ? ((Collection<?>) target).size() : -1;
+      case ARRAY:
+        return ((Object[]) target).length;
+      default:
+        return -1;
+    }
+  }
+
+  private boolean scanInParallel(Object target, StringMemberPlan plan) {
+    Object[] elements;
+    switch (plan.getKind()) {
+      case MAP:
+        elements = ((Map<?, ?>) target).entrySet().toArray();
+        break;
+      case ITERABLE:
+        elements = ((Collection<?>) target).toArray();
+        break;
+      default:
+        elements = (Object[]) target;
+        break;
+    }
+    Split split = new Split(strings, chars);
+    boolean completed = parallelScan.getPool()
+        .invoke(new Chunk(split, elements, plan.getKind() == StringMemberPlan.Kind.MAP, 0, elements.length));
+    strings += split.strings.get();
+    chars += split.chars.get();
+    if (split.exceededLimit != null)
+      exceededLimit = split.exceededLimit;
+    return completed;
+  }
+
+  private boolean visit(String value) {
+    strings++;
+    chars += value.length();
+    if (otherStrings + strings > budget.getMaxStrings())
+      return exceed(ScanBudget.Limit.STRINGS);
+    if (otherChars + chars > budget.getMaxChars())
+      return exceed(ScanBudget.Limit.CHARS);
+    return tick() && visitor.visit(value);
+  }
+
+  /**
+   * @return false if the time limit has been exceeded or another chunk has stopped
+   */
+  private boolean tick() {
+    if (split != null && split.stopped)
+      return false;
+    if (++steps % CLOCK_INTERVAL != 0)
+      return true;
+    if (split != null)
+      split.publish(this);
+    if (deadline != 0 && System.nanoTime() - deadline > 0)
+      return exceed(ScanBudget.Limit.TIME);
+    return true;
+  }
+
+  private boolean exceed(ScanBudget.Limit limit) {
+    exceededLimit = limit;
+    if (split != null)
+      split.exceededLimit = limit;
+    return false;
+  }
+
+  private boolean markVisited(Object target) {
+    if (splitVisitedObjects != null && splitVisitedObjects.contains(target))
+      return false;
+    if (visitedObjects == null)
+      visitedObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+    return visitedObjects.add(target);
+  }
+
+  /**
+   * Counters of chunks which are published every {@link #CLOCK_INTERVAL} steps and at the end of a chunk.
+   */
+  private static final class Split {
+    final long baseStrings;
+    final long baseChars;
+    final AtomicLong strings = new AtomicLong();
+    final AtomicLong chars = new AtomicLong();
+    volatile boolean stopped;
+    volatile ScanBudget.Limit exceededLimit;
+
+    Split(long baseStrings, long baseChars) {
+      this.baseStrings = baseStrings;
+      this.baseChars = baseChars;
+    }
+
+    void publish(StringMemberScanner chunk) {
+      chunk.otherStrings = baseStrings + strings.addAndGet(chunk.strings - chunk.publishedStrings) - chunk.strings;
+      chunk.otherChars = baseChars + chars.addAndGet(chunk.chars - chunk.publishedChars) - chunk.chars;
+      chunk.publishedStrings = chunk.strings;
+      chunk.publishedChars = chunk.chars;
+    }
+  }
+
+  private final class Chunk extends RecursiveTask<Boolean> {
+    private static final long serialVersionUID = 1L;
+    private final Split split;
+    private final Object[] elements;
+    private final boolean entries;
+    private final int from;
+    private final int to;
+
+    Chunk(Split split, Object[] elements, boolean entries, int from, int to) {
+      this.split = split;
+      this.elements = elements;
+      this.entries = entries;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Boolean compute() {
+      if (split.stopped)
+        return false;
+      if (to - from > parallelScan.getChunkSize()) {
+        int middle = (from + to) >>> 1;
+        Chunk left = new Chunk(split, elements, entries, from, middle);
+        left.fork();
+        boolean completed = new Chunk(split, elements, entries, middle, to).compute();
+        return left.join() && completed;
+      }
+      StringMemberScanner scanner = new StringMemberScanner(StringMemberScanner.this, split);
+      boolean completed = true;
+      for (int i = from; completed && i < to; i++) {
+        if (entries) {
+          Map.Entry<?, ?> entry = (Map.Entry<?, ?>) elements[i];
+          completed = scanner.scan(entry.getKey()) && scanner.scan(entry.getValue());
+        } else {
+          completed = scanner.scan(elements[i]);
+        }
+      }
+      split.publish(scanner);
+      if (!completed)
+        split.stopped = true;
+      return completed;
+    }
+  }
+}
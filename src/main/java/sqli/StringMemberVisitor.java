@@ -0,0 +1,15 @@
+package sqli;
+
+/**
+ * @author qwefgh90
+ * A callback which receives string members one by one while an object graph is visited.
+ */
+@FunctionalInterface
+public interface StringMemberVisitor {
+
+  /**
+   * @param value a string member, or a value returned from toString()
+   * @return true to continue visiting. false to stop visiting immediately.
+   */
+  boolean visit(String value);
+}
@@ -0,0 +1,81 @@
+package sqli;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.OgnlCache;
+import org.apache.ibatis.type.SimpleTypeRegistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author qwefgh90
+ * Evaluate only the values which reach string substitution (<code>${}</code>) in a mapped statement.
+ * <br>1. Expressions of <code>${}</code> are worked out once when a {@link DynamicSqlSource} is built.
+ * <br>2. At runtime, only those expressions are evaluated against a parameter object.
+ * <br>3. Values bound with <code>#{}</code> are never returned, because they are not injectable.
+ */
+public final class SubstitutedValues {
+
+  private SubstitutedValues() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * @param mappedStatement
+   * @param parameterObject a parameter object which is passed to an executor
+   * @return values substituted for <code>${}</code>, or null if they cannot be determined.
+   * In that case, the whole parameter object should be inspected.
+   */
+  public static List<Object> evaluate(MappedStatement mappedStatement, Object parameterObject) {
+    SqlSource sqlSource = mappedStatement.getSqlSource();
+    if (sqlSource instanceof RawSqlSource || sqlSource instanceof StaticSqlSource)
+      return Collections.emptyList();   // No string substitution at all
+    if (!(sqlSource instanceof DynamicSqlSource))
+      return null;                      // e.g. a provider or a custom language driver
+    List<String> expressions = ((DynamicSqlSource) sqlSource).getSubstitutionExpressions();
+    if (expressions == null)
+      return null;
+    if (expressions.isEmpty())
+      return Collections.emptyList();
+
+    DynamicContext context = newContext(mappedStatement, parameterObject);
+    List<Object> values = new ArrayList<>(expressions.size());
+    for (String expression : expressions) {
+      try {
+        values.add(OgnlCache.getValue(expression, context.getBindings()));
+      } catch (BuilderException e) {
+        // An expression which cannot be evaluated fails in TextSqlNode as well, so nothing is substituted.
+      }
+    }
+    return values;
+  }
+
+  static DynamicContext newContext(MappedStatement mappedStatement, Object parameterObject) {
+    DynamicContext context = new DynamicContext(mappedStatement.getConfiguration(), parameterObject);
+    if (parameterObject == null) {    // The same bindings as TextSqlNode
+      context.bind("value", null);
+    } else if (SimpleTypeRegistry.isSimpleType(parameterObject.getClass())) {
+      context.bind("value", parameterObject);
+    }
+    return context;
+  }
+
+  /**
+   * @return a value of an expression, or null if it cannot be evaluated.
+   * Such an expression fails in TextSqlNode as well, so nothing is substituted.
+   */
+  static Object evaluateOrNull(String expression, DynamicContext context) {
+    try {
+      return OgnlCache.getValue(expression, context.getBindings());
+    } catch (BuilderException e) {
+      return null;
+    }
+  }
+}
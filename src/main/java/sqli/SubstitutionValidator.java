@@ -0,0 +1,86 @@
+package sqli;
+
+import org.apache.ibatis.scripting.xmltags.SubstitutionFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * @author qwefgh90
+ * An immutable validator of values substituted for <code>${}</code>, which is resolved once when a mapper is built.
+ * <br>1. A regular expression is compiled once, and a value must match it entirely.
+ * <br>2. Names of {@link AllowListProviderRegistry} are resolved once, so no registry lookup happens at runtime.
+ * Providers registered again later still apply.
+ * <br>3. A validator is declared per statement in mapper XML or per token in any <code>${}</code>. Allow-lists are
+ * resolved when the <code>substitutionFilterFactory</code> setting is {@link SubstitutionValidatorFactory}.
+ * <br>4. A token ends at the first unescaped <code>}</code>, so a <code>}</code> in a per-token pattern is written as
+ * <code>\}</code>. A pattern cut by <code>}</code> is rejected when a mapper is built.
+ *
+ * <pre>
+ * &lt;select id="search" substitutionAllowList="columns"&gt; ... order by ${orderBy}&lt;/select&gt;
+ * &lt;select id="search" substitutionPattern="[a-z_]+"&gt; ... order by ${orderBy}&lt;/select&gt;
+ * &#64;Select("select * from users order by ${orderBy,allowList=columns} ${direction,pattern=asc|desc}")
+ * &#64;Select("select * from users order by ${orderBy,pattern=[a-z_]{1,30\}}")
+ * </pre>
+ */
+public final class SubstitutionValidator implements SubstitutionFilter {
+
+  private final AllowListProvider provider;
+  private final String description;
+
+  private SubstitutionValidator(AllowListProvider provider, String description) {
+    this.provider = provider;
+    this.description = description;
+  }
+
+  public static SubstitutionValidator pattern(Pattern pattern) {
+    return new SubstitutionValidator(new RegexAllowListProvider(pattern), "regex " + pattern.pattern());
+  }
+
+  public static SubstitutionValidator pattern(String regex) {
+    return pattern(Pattern.compile(regex));
+  }
+
+  /**
+   * @param providerNames names in {@link AllowListProviderRegistry}. A value is valid if any of them accepts it.
+   */
+  public static SubstitutionValidator allowLists(String... providerNames) {
+    return new SubstitutionValidator(AllowListProviderRegistry.resolve(providerNames),
+        "allow-lists " + Arrays.toString(providerNames));
+  }
+
+  /**
+   * Combine declarations of a statement or a token. Both can be null.
+   *
+   * @param allowLists comma separated names in {@link AllowListProviderRegistry}
+   * @param regex a regular expression
+   * @return a validator which requires both, or null if nothing is declared
+   */
+  public static SubstitutionValidator of(String allowLists, String regex) {
+    List<String> names = new ArrayList<>();
+    if (allowLists != null) {
+      for (String name : allowLists.split(",")) {
+        if (!name.trim().isEmpty())
+          names.add(name.trim());
+      }
+    }
+    SubstitutionValidator byNames = names.isEmpty() ? null : allowLists(names.toArray(new String[0]));
+    SubstitutionValidator byPattern = regex == null ? null : pattern(regex);
+    if (byNames == null || byPattern == null)
+      return byNames != null ? byNames : byPattern;
+    return new SubstitutionValidator(value -> byNames.isValid(value) && byPattern.isValid(value),
+        byNames.description + " and " + byPattern.description);
+  }
+
+  @Override
+  public boolean isValid(String value) {
+    return provider.isValid(value);
+  }
+
+  @Override
+  public String getDescription() {
+    return description;
+  }
+}
@@ -0,0 +1,22 @@
+package sqli;
+
+import org.apache.ibatis.scripting.xmltags.SubstitutionFilter;
+import org.apache.ibatis.scripting.xmltags.SubstitutionFilterFactory;
+
+/**
+ * @author qwefgh90
+ * Resolve allow-lists and patterns of statements and tokens with {@link SubstitutionValidator#of(String, String)}.
+ * <br>1. Set it with the <code>substitutionFilterFactory</code> setting, so names of {@link AllowListProviderRegistry}
+ * can be used in <code>substitutionAllowList</code> and <code>${orderBy,allowList=columns}</code>.
+ *
+ * <pre>
+ * &lt;setting name="substitutionFilterFactory" value="sqli.SubstitutionValidatorFactory"/&gt;
+ * </pre>
+ */
+public class SubstitutionValidatorFactory implements SubstitutionFilterFactory {
+
+  @Override
+  public SubstitutionFilter create(String allowLists, String regex) {
+    return SubstitutionValidator.of(allowLists, regex);
+  }
+}
@@ -48,15 +48,20 @@ import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.io.JBoss6VFS;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
+import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.ResultSetType;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.DefaultSubstitutionFilterFactory;
+import org.apache.ibatis.scripting.xmltags.SubstitutionFilter;
+import org.apache.ibatis.scripting.xmltags.SubstitutionFilterFactory;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlInjectionDetector;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 import org.apache.ibatis.type.BaseTypeHandler;
 import org.apache.ibatis.type.EnumOrdinalTypeHandler;
@@ -105,6 +110,12 @@ class XmlConfigBuilderTest {
       assertThat(config.isArgNameBasedConstructorAutoMapping()).isFalse();
       assertThat(config.getDefaultSqlProviderType()).isNull();
       assertThat(config.isNullableOnForEach()).isFalse();
+      assertThat(config.getDynamicSqlCacheSize()).isZero();
+      assertThat(config.isPositionalForEachBinding()).isFalse();
+      assertThat(config.getAutoMappingCacheSize()).isZero();
+      assertThat(config.isNestedCursorStreamingEnabled()).isFalse();
+      assertThat(config.getSubstitutionFilterFactory()).isInstanceOf(DefaultSubstitutionFilterFactory.class);
+      assertNull(config.getSqlInjectionDetector());
     }
   }
 
@@ -204,6 +215,12 @@ class XmlConfigBuilderTest {
       assertThat(config.isArgNameBasedConstructorAutoMapping()).isTrue();
       assertThat(config.getDefaultSqlProviderType().getName()).isEqualTo(MySqlProvider.class.getName());
       assertThat(config.isNullableOnForEach()).isTrue();
+      assertThat(config.getDynamicSqlCacheSize()).isEqualTo(64);
+      assertThat(config.isPositionalForEachBinding()).isTrue();
+      assertThat(config.getAutoMappingCacheSize()).isEqualTo(256);
+      assertThat(config.isNestedCursorStreamingEnabled()).isTrue();
+      assertThat(config.getSubstitutionFilterFactory()).isInstanceOf(MySubstitutionFilterFactory.class);
+      assertThat(config.getSqlInjectionDetector()).isInstanceOf(MySqlInjectionDetector.class);
 
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blogauthor")).isEqualTo(Author.class);
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blog")).isEqualTo(Blog.class);
@@ -319,4 +336,18 @@ class XmlConfigBuilderTest {
     }
   }
 
+  public static class MySubstitutionFilterFactory implements SubstitutionFilterFactory {
+    @Override
+    public SubstitutionFilter create(String allowLists, String regex) {
+      return null;
+    }
+  }
+
+  public static class MySqlInjectionDetector implements SqlInjectionDetector {
+    @Override
+    public boolean isInjection(MappedStatement mappedStatement, Object parameterObject) {
+      return false;
+    }
+  }
+
 }
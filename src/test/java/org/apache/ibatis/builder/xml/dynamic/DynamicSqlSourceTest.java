@@ -22,13 +22,16 @@ import java.io.Reader;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
@@ -36,11 +39,13 @@ import org.apache.ibatis.scripting.xmltags.IfSqlNode;
 import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
 import org.apache.ibatis.scripting.xmltags.SetSqlNode;
 import org.apache.ibatis.scripting.xmltags.SqlNode;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
 import org.apache.ibatis.scripting.xmltags.TextSqlNode;
 import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.type.JdbcType;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -376,6 +381,87 @@ class DynamicSqlSourceTest extends BaseDataTest {
     assertEquals("__frch_u_0", boundSql.getParameterMappings().get(3).getProperty());
   }
 
+  @Test
+  void shouldReuseParsedSqlOfTheSameShape() {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(2);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID in"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item.id}")), "list", null, "item", "(", ")",
+            ",")));
+    Map<String, Object> param = new HashMap<>();
+    param.put("list", Arrays.asList(new Bean("a"), new Bean("b")));
+    BoundSql first = source.getBoundSql(param);
+    param.put("list", Arrays.asList(new Bean("c"), new Bean("d")));
+    BoundSql second = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE ID in (  ? , ? )", second.getSql());
+    Assertions.assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals("c", second.getAdditionalParameter("__frch_item_0.id"));
+
+    // types of nested properties are resolved again
+    Map<String, Object> item = new HashMap<>();
+    item.put("id", 1);
+    param.put("list", Arrays.asList(item, item));
+    BoundSql third = source.getBoundSql(param);
+    assertEquals(Integer.class, third.getParameterMappings().get(0).getJavaType());
+    item.put("id", "1");
+    BoundSql fourth = source.getBoundSql(param);
+    Assertions.assertNotSame(third.getParameterMappings(), fourth.getParameterMappings());
+    assertEquals(String.class, fourth.getParameterMappings().get(0).getJavaType());
+
+    param.put("list", Collections.singletonList(new Bean("e")));
+    assertEquals("SELECT * FROM BLOG WHERE ID in (  ? )", source.getBoundSql(param).getSql());
+  }
+
+  @Test
+  void shouldBindSimpleForEachItemsByPosition() {
+    Configuration configuration = new Configuration();
+    SqlNode forEach = new ForEachSqlNode(configuration, mixedContents(new StaticTextSqlNode("#{ item, jdbcType=INTEGER}")),
+        "ids", null, "index", "item", "(", ")", ",");
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID in"), forEach));
+    Map<String, Object> param = new HashMap<>();
+    param.put("ids", Arrays.asList(1, 2, 3));
+    BoundSql expected = source.getBoundSql(param);
+
+    configuration.setPositionalForEachBinding(true);
+    BoundSql positional = source.getBoundSql(param);
+    assertEquals(expected.getSql(), positional.getSql());
+    assertEquals(3, positional.getParameterMappings().size());
+    for (int i = 0; i < 3; i++) {
+      ParameterMapping mapping = positional.getParameterMappings().get(i);
+      assertEquals("__frch_item_0[" + i + "]", mapping.getProperty());
+      assertEquals(JdbcType.INTEGER, mapping.getJdbcType());
+      assertEquals(i + 1, positional.getAdditionalParameter(mapping.getProperty()));
+    }
+    Assertions.assertFalse(positional.hasAdditionalParameter("item"));
+    Assertions.assertFalse(positional.hasAdditionalParameter("index"));
+
+    // values of a map are items
+    Map<String, Integer> ids = new LinkedHashMap<>();
+    ids.put("a", 4);
+    ids.put("b", 5);
+    param.put("ids", ids);
+    positional = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE ID in (  ? , ? )", positional.getSql());
+    assertEquals(5, positional.getAdditionalParameter(positional.getParameterMappings().get(1).getProperty()));
+  }
+
+  @Test
+  void shouldNotBindOtherForEachBodiesByPosition() {
+    Configuration configuration = new Configuration();
+    configuration.setPositionalForEachBinding(true);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID in"),
+        new ForEachSqlNode(configuration, mixedContents(new StaticTextSqlNode("#{item.id}")), "list", null, null,
+            "item", "(", ")", ",")));
+    Map<String, Object> param = new HashMap<>();
+    param.put("list", Arrays.asList(new Bean("a"), new Bean("b")));
+    BoundSql boundSql = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE ID in (  ? , ? )", boundSql.getSql());
+    assertEquals("__frch_item_1.id", boundSql.getParameterMappings().get(1).getProperty());
+  }
+
   private DynamicSqlSource createDynamicSqlSource(SqlNode... contents) throws IOException, SQLException {
     createBlogDataSource();
     final String resource = "org/apache/ibatis/builder/MapperConfig.xml";
@@ -17,11 +17,16 @@ package org.apache.ibatis.executor.resultset;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -33,6 +38,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -44,6 +50,9 @@ import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 import org.junit.jupiter.api.Assertions;
@@ -87,7 +96,7 @@ class DefaultResultSetHandlerTest {
     when(rs.getMetaData()).thenReturn(rsmd);
     when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
     when(rs.next()).thenReturn(true).thenReturn(false);
-    when(rs.getInt("CoLuMn1")).thenReturn(100);
+    when(rs.getInt(1)).thenReturn(100); // read by index
     when(rsmd.getColumnCount()).thenReturn(1);
     when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
     when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
@@ -101,6 +110,86 @@ class DefaultResultSetHandlerTest {
     assertEquals(100, ((HashMap) results.get(0)).get("cOlUmN1"));
   }
 
+  @Test
+  void shouldReadColumnByNameWithCustomTypeHandler() throws Exception {
+    final Configuration config = new Configuration();
+    final TypeHandler<Integer> typeHandler = mock(TypeHandler.class);
+    when(typeHandler.getResult(rs, "CoLuMn1")).thenReturn(100);
+    final MappedStatement ms = new MappedStatement.Builder(config, "testSelect",
+        new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+            Collections.singletonList(new ResultMap.Builder(config, "testMap", HashMap.class, Collections.singletonList(
+                new ResultMapping.Builder(config, "cOlUmN1", "CoLuMn1", typeHandler).build())).build()))
+        .build();
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(false);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    final List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, RowBounds.DEFAULT)
+        .handleResultSets(stmt);
+    assertEquals(100, ((HashMap) results.get(0)).get("cOlUmN1"));
+    verify(typeHandler, never()).getResult(any(ResultSet.class), anyInt());
+  }
+
+  @Test
+  void shouldReadColumnByNameWithCustomBaseTypeHandler() throws Exception {
+    final Configuration config = new Configuration();
+    final MappedStatement ms = new MappedStatement.Builder(config, "testSelect",
+        new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+            Collections.singletonList(new ResultMap.Builder(config, "testMap", HashMap.class, Collections.singletonList(
+                new ResultMapping.Builder(config, "cOlUmN1", "CoLuMn1", new ByNameTypeHandler()).build())).build()))
+        .build();
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(false);
+    when(rs.getInt("CoLuMn1")).thenReturn(100);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    final List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, RowBounds.DEFAULT)
+        .handleResultSets(stmt);
+    assertEquals(100, ((HashMap) results.get(0)).get("cOlUmN1"));
+    Assertions.assertTrue(DefaultResultSetHandler.readsByIndex(new IntegerTypeHandler()));
+    Assertions.assertFalse(DefaultResultSetHandler.readsByIndex(new ByNameTypeHandler()));
+  }
+
+  static class ByNameTypeHandler extends BaseTypeHandler<Integer> {
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, Integer parameter, JdbcType jdbcType) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Integer getNullableResult(ResultSet rs, String columnName) throws SQLException {
+      return rs.getInt(columnName);
+    }
+
+    @Override
+    public Integer getNullableResult(ResultSet rs, int columnIndex) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Integer getNullableResult(CallableStatement cs, int columnIndex) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
   @Test
   void shouldThrowExceptionWithColumnName() throws Exception {
     final MappedStatement ms = getMappedStatement();
@@ -129,6 +218,97 @@ class DefaultResultSetHandlerTest {
     }
   }
 
+  @Test
+  void shouldMapSimpleRowsByCompiledRowMapper() throws Exception {
+    final Configuration config = new Configuration();
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    final ResultMap resultMap = new ResultMap.Builder(config, "authorMap", Author.class, Collections.singletonList(
+        new ResultMapping.Builder(config, "email", "EMAIL_ADDR", registry.getTypeHandler(String.class)).build())).build();
+    final MappedStatement ms = new MappedStatement.Builder(config, "selectAuthor",
+        new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT)
+            .resultMaps(Collections.singletonList(resultMap)).build();
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true, true, false, true, false);
+    when(rs.getInt(1)).thenReturn(101, 102, 103);
+    when(rs.getString(2)).thenReturn("jim", "sally", "jim");
+    when(rs.getString(3)).thenReturn("jim@ibatis.apache.org", null, "jim@ibatis.apache.org");
+    when(rsmd.getColumnCount()).thenReturn(3);
+    when(rsmd.getColumnLabel(1)).thenReturn("ID");
+    when(rsmd.getColumnLabel(2)).thenReturn("USERNAME");
+    when(rsmd.getColumnLabel(3)).thenReturn("EMAIL_ADDR");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnType(3)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(rsmd.getColumnClassName(2)).thenReturn(String.class.getCanonicalName());
+    when(rsmd.getColumnClassName(3)).thenReturn(String.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, RowBounds.DEFAULT)
+        .handleResultSets(stmt);
+    assertEquals(2, results.size());
+    Author first = (Author) results.get(0);
+    assertEquals(101, first.getId());
+    assertEquals("jim", first.getUsername());
+    assertEquals("jim@ibatis.apache.org", first.getEmail());
+    Author second = (Author) results.get(1);
+    assertEquals(102, second.getId());
+    assertEquals("sally", second.getUsername());
+    Assertions.assertNull(second.getEmail());
+    assertEquals(1, ms.getCompiledRowMappers().size());
+    CompiledRowMapper rowMapper = ms.getCompiledRowMappers().values().iterator().next();
+
+    // another execution with the same columns reuses the row mapper
+    results = new DefaultResultSetHandler(null, ms, null, null, null, RowBounds.DEFAULT).handleResultSets(stmt);
+    assertEquals(103, ((Author) results.get(0)).getId());
+    Assertions.assertSame(rowMapper, ms.getCompiledRowMappers().values().iterator().next());
+  }
+
+  @Test
+  void shouldShareAutomaticMappingsBetweenExecutions() throws Exception {
+    final Configuration config = new Configuration();
+    config.setAutoMappingCacheSize(16);
+    final MappedStatement ms = new MappedStatement.Builder(config, "testSelect",
+        new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+            Collections.singletonList(new ResultMap.Builder(config, "testMap", HashMap.class, new ArrayList<>()).build()))
+        .build();
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true, false, true, false);
+    when(rs.getInt(1)).thenReturn(101, 102);
+    when(rs.getString(2)).thenReturn("jim", "sally");
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("ID");
+    when(rsmd.getColumnLabel(2)).thenReturn("USERNAME");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(rsmd.getColumnClassName(2)).thenReturn(String.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, RowBounds.DEFAULT)
+        .handleResultSets(stmt);
+    assertEquals(101, ((HashMap) results.get(0)).get("ID"));
+    assertEquals("jim", ((HashMap) results.get(0)).get("USERNAME"));
+    // column names and automatic mappings of the result map
+    assertEquals(2, config.getAutoMappingCache().size());
+
+    // another execution with the same columns uses them
+    results = new DefaultResultSetHandler(null, ms, null, null, null, RowBounds.DEFAULT).handleResultSets(stmt);
+    assertEquals(102, ((HashMap) results.get(0)).get("ID"));
+    assertEquals("sally", ((HashMap) results.get(0)).get("USERNAME"));
+    assertEquals(2, config.getAutoMappingCache().size());
+  }
+
   MappedStatement getMappedStatement() {
     final Configuration config = new Configuration();
     final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
@@ -0,0 +1,45 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class RowKeyTest {
+
+  @Test
+  void shouldBeEqualForSameValuesAndParents() {
+    RowKey parent1 = new RowKey("blog", null, new Object[] { 1 }, null);
+    RowKey parent2 = new RowKey("blog", null, new Object[] { 1 }, null);
+    RowKey key1 = new RowKey("post", "P_", new Object[] { 10, null, new byte[] { 1, 2 } }, parent1);
+    RowKey key2 = new RowKey("post", "P_", new Object[] { 10, null, new byte[] { 1, 2 } }, parent2);
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+  }
+
+  @Test
+  void shouldNotBeEqualForDifferentValuesOrParents() {
+    RowKey parent = new RowKey("blog", null, new Object[] { 1 }, null);
+    RowKey key = new RowKey("post", null, new Object[] { 10, null }, parent);
+    assertNotEquals(key, new RowKey("post", null, new Object[] { null, 10 }, parent));
+    assertNotEquals(key, new RowKey("post", null, new Object[] { 10, null }, new RowKey("blog", null, new Object[] { 2 }, null)));
+    assertNotEquals(key, new RowKey("post", null, new Object[] { 10, null }, null));
+    assertNotEquals(key, new RowKey("post", "P_", new Object[] { 10, null }, parent));
+    assertNotEquals(key, new RowKey("comment", null, new Object[] { 10, null }, parent));
+  }
+}
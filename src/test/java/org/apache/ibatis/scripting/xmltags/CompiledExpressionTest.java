@@ -0,0 +1,149 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import ognl.Ognl;
+import ognl.OgnlException;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CompiledExpressionTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldEvaluateAsOgnlDoes() throws Exception {
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("blog", new Blog(1, "Blog", author, Collections.emptyList()));
+    parameter.put("ids", Collections.unmodifiableList(Arrays.asList(1, 2, 3)));
+    parameter.put("count", 3L);
+    parameter.put("flag", "true");
+    parameter.put("none", null);
+    Map<String, Object> bindings = new DynamicContext(configuration, parameter).getBindings();
+
+    String[] expressions = { "blog != null", "blog.author.username == 'jim'", "blog.author.bio != null and blog.author.bio != ''",
+        "blog.author.id > 100", "blog.author.id >= 101.0", "blog.author.id < 100", "blog.author.id <= count",
+        "ids.size() > 0", "ids.isEmpty()", "!ids.isEmpty()", "count == 3", "count != 3", "flag", "not flag",
+        "none == null", "none or count", "count and blog.title", "blog.author.favouriteSection != null",
+        "_parameter.count", "_databaseId == null", "missing == null" };
+    for (String expression : expressions) {
+      CompiledExpression compiled = CompiledExpression.compile(Ognl.parseExpression(expression));
+      assertNotNull(compiled, expression);
+      assertEquals(Ognl.getValue(expression, OgnlCache.createContext(bindings), bindings), compiled.evaluate(bindings),
+          expression);
+    }
+  }
+
+  @Test
+  void shouldNotCompileOtherExpressions() throws Exception {
+    for (String expression : new String[] { "ids[0]", "name.indexOf('a')", "a + b", "@java.lang.Math@max(a, b)",
+        "list.{? #this > 1}", "name instanceof String" }) {
+      assertNull(CompiledExpression.compile(Ognl.parseExpression(expression)), expression);
+    }
+  }
+
+  @Test
+  void shouldLeaveStepsWithoutGettersToOgnl() throws Exception {
+    class DataClass {
+      @SuppressWarnings("unused")
+      private final int id = 1;
+    }
+    Map<String, Object> bindings = new DynamicContext(configuration, new HashMap<>()).getBindings();
+    bindings.put("ids", Arrays.asList(1, 2));
+    bindings.put("data", new DataClass());
+
+    // ListPropertyAccessor reads 'size' of a list
+    CompiledExpression size = CompiledExpression.compile(Ognl.parseExpression("ids.size"));
+    assertEquals(2, size.evaluate(bindings));
+    assertEquals(2, OgnlCache.getValue("ids.size", bindings));
+
+    // a null in the middle of a path is an error of OGNL
+    CompiledExpression nullSource = CompiledExpression.compile(Ognl.parseExpression("blog.title != null"));
+    OgnlException e = assertThrows(OgnlException.class, () -> nullSource.evaluate(bindings));
+    assertEquals("source is null for getProperty(null, \"title\")", e.getMessage());
+    assertThrows(BuilderException.class, () -> OgnlCache.getValue("blog.title != null", bindings));
+
+    // a property without a getter is read from a field
+    CompiledExpression field = CompiledExpression.compile(Ognl.parseExpression("data.id == 1"));
+    assertEquals(true, field.evaluate(bindings));
+    assertEquals(true, OgnlCache.getValue("data.id == 1", bindings));
+  }
+
+  @Test
+  void shouldInvokeGettersOnce() throws Exception {
+    CountingBean bean = new CountingBean();
+    Map<String, Object> bindings = new DynamicContext(configuration, new HashMap<>()).getBindings();
+    bindings.put("bean", bean);
+
+    // the field read by OGNL comes after a compiled getter
+    assertEquals(true, OgnlCache.getValue("bean.self.field == 1", bindings));
+    assertEquals(1, bean.calls);
+    assertThrows(BuilderException.class, () -> OgnlCache.getValue("bean.self.none.name != null", bindings));
+    assertEquals(2, bean.calls);
+    assertThrows(BuilderException.class, () -> OgnlCache.getValue("bean.self != null and bean.failing", bindings));
+    assertEquals(3, bean.calls);
+  }
+
+  @Test
+  void shouldWrapExceptionsAsOgnlDoes() throws Exception {
+    Map<String, Object> bindings = new DynamicContext(configuration, new HashMap<>()).getBindings();
+    bindings.put("bean", new CountingBean());
+    for (String expression : new String[] { "bean.failing", "bean.fail()" }) {
+      Exception expected = assertThrows(OgnlException.class,
+          () -> Ognl.getValue(expression, OgnlCache.createContext(bindings), bindings));
+      Exception actual = assertThrows(OgnlException.class,
+          () -> CompiledExpression.compile(Ognl.parseExpression(expression)).evaluate(bindings));
+      assertEquals(expected.getClass(), actual.getClass(), expression);
+      assertEquals(expected.getMessage(), actual.getMessage(), expression);
+      assertSame(IllegalStateException.class, ((OgnlException) actual).getReason().getClass(), expression);
+    }
+  }
+
+  public static class CountingBean {
+    public final int field = 1;
+    private int calls;
+
+    public CountingBean getSelf() {
+      calls++;
+      return this;
+    }
+
+    public Object getNone() {
+      return null;
+    }
+
+    public boolean isFailing() {
+      throw new IllegalStateException("failing");
+    }
+
+    public boolean fail() {
+      throw new IllegalStateException("fail");
+    }
+  }
+}
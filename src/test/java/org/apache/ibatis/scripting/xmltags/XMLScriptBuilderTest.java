@@ -0,0 +1,125 @@
+/*
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.xml.XMLMapperEntityResolver;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.parsing.XPathParser;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class XMLScriptBuilderTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void adjacentTextsAreMerged() {
+    XNode script = nodeOf("<script>SELECT * FROM BLOG<![CDATA[ WHERE ID > 0]]>"
+        + "<trim prefix='AND'> AUTHOR_ID = #{id}<![CDATA[ AND ID < 10]]></trim><![CDATA[ORDER BY]]>ID</script>");
+    MixedSqlNode root = new XMLScriptBuilder(configuration, script).parseDynamicTags(script);
+    List<SqlNode> contents = root.getContents();
+    assertEquals(3, contents.size());
+    assertEquals("SELECT * FROM BLOG  WHERE ID > 0", ((StaticTextSqlNode) contents.get(0)).getText());
+    assertEquals("ORDER BY ID", ((StaticTextSqlNode) contents.get(2)).getText());
+    MixedSqlNode trim = (MixedSqlNode) ((TrimSqlNode) contents.get(1)).getContents();
+    assertEquals(1, trim.getContents().size());
+
+    DynamicSqlSource source = (DynamicSqlSource) new XMLScriptBuilder(configuration, script).parseScriptNode();
+    assertEquals("SELECT * FROM BLOG  WHERE ID > 0 AND AUTHOR_ID = ? AND ID < 10 ORDER BY ID",
+        source.getBoundSql(Collections.singletonMap("id", 1)).getSql());
+  }
+
+  @Test
+  void textsInForEachAreNotMerged() {
+    XNode script = nodeOf("<script>SELECT * FROM BLOG WHERE ID IN"
+        + "<foreach collection='ids' item='id' open='(' close=')' separator=','> <![CDATA[#{id}]]></foreach></script>");
+    XMLScriptBuilder builder = new XMLScriptBuilder(configuration, script);
+    ForEachSqlNode forEach = (ForEachSqlNode) builder.parseDynamicTags(script).getContents().get(1);
+    assertEquals(2, ((MixedSqlNode) forEach.getContents()).getContents().size());
+    Map<String, Object> param = new HashMap<>();
+    param.put("ids", List.of(1, 2));
+    assertEquals("SELECT * FROM BLOG WHERE ID IN (    ?   , ? )", builder.parseScriptNode().getBoundSql(param).getSql());
+  }
+
+  @Test
+  void textIsSplitOnce() {
+    TextSqlNode node = new TextSqlNode("ORDER BY ${column} \\${literal} ${direction");
+    assertTrue(node.isDynamic());
+    DynamicContext context = new DynamicContext(configuration, Collections.singletonMap("column", "NAME"));
+    node.apply(context);
+    assertEquals("ORDER BY NAME ${literal} ${direction", context.getSql());
+    assertFalse(new TextSqlNode("ORDER BY \\${literal}").isDynamic());
+  }
+
+  @Test
+  void planRendersTheSameSqlAsTheTree() {
+    XNode script = nodeOf("<script>SELECT * FROM BLOG <where> <if test='id != null'>AND ID = #{id}</if>"
+        + "<if test='title != null'><bind name='pattern' value=\"'%' + title + '%'\"/>AND TITLE LIKE #{pattern}</if>"
+        + "<choose><when test='ids != null'>AND ID IN <foreach collection='ids' item='i' open='(' close=')' separator=','>"
+        + "#{i}</foreach></when><when test='featured'>AND FEATURED = 1</when><otherwise>AND DRAFT = 0</otherwise></choose>"
+        + "<trim prefix='AND (' suffix=')' prefixOverrides='OR'><if test='a'>OR A = 1</if><if test='b'>OR B = 1</if></trim>"
+        + "</where> ORDER BY ${column}</script>");
+    SqlNode root = new XMLScriptBuilder(configuration, script).parseDynamicTags(script);
+    SqlPlan plan = SqlPlan.compile(root);
+
+    for (int i = 0; i < 64; i++) {
+      Map<String, Object> param = new HashMap<>();
+      param.put("id", (i & 1) != 0 ? 1 : null);
+      param.put("title", (i & 2) != 0 ? "mybatis" : null);
+      param.put("ids", (i & 4) != 0 ? List.of(1, 2) : null);
+      param.put("featured", (i & 8) != 0);
+      param.put("a", (i & 16) != 0);
+      param.put("b", (i & 32) != 0);
+      param.put("column", "ID");
+      DynamicContext expected = new DynamicContext(configuration, param);
+      root.apply(expected);
+      DynamicContext actual = plan.render(configuration, param);
+      assertEquals(expected.getSql(), actual.getSql());
+      assertEquals(expected.getBindings(), actual.getBindings());
+    }
+  }
+
+  @Test
+  void planAppliesNodesItCannotCompile() {
+    SqlNode custom = context -> {
+      context.appendSql("AND");
+      context.appendSql("CUSTOM = 1");
+      return true;
+    };
+    SqlNode root = new MixedSqlNode(List.of(new StaticTextSqlNode("SELECT * FROM BLOG"),
+        new WhereSqlNode(configuration, new MixedSqlNode(List.of(new StaticTextSqlNode(" "), custom))),
+        new SetSqlNode(configuration, new StaticTextSqlNode("TITLE = 1,"))));
+    DynamicContext expected = new DynamicContext(configuration, null);
+    root.apply(expected);
+    assertEquals(expected.getSql(), SqlPlan.compile(root).render(configuration, null).getSql());
+  }
+
+  private XMLScriptBuilder builderOf(String script) {
+    return new XMLScriptBuilder(configuration, nodeOf(script));
+  }
+
+  private XNode nodeOf(String script) {
+    XPathParser parser = new XPathParser(script, false, configuration.getVariables(), new XMLMapperEntityResolver());
+    return parser.evalNode("/script");
+  }
+}
@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 public class AllowListTest {
@@ -59,4 +61,105 @@ public class AllowListTest {
     Assertions.assertFalse(AllowListProviderRegistry.isValid("10 UNION SELECT 1,null,null—", "SORT"));
     Assertions.assertFalse(AllowListProviderRegistry.isValid("10 ORDER BY 10", "SORT"));
   }
+
+  @Test
+  void resolvedValidatorSeesReloadedProviders(){
+    AllowListProvider validator = AllowListProviderRegistry.resolve("RELOAD_COLUMN", "RELOAD_TABLE");
+    Assertions.assertFalse(validator.isValid("title"));
+    AllowListProviderRegistry.register("RELOAD_COLUMN", new ExactWordAllowListProvider(true, "title"));
+    AllowListProviderRegistry.register("RELOAD_TABLE", RegexAllowListProvider.create(Pattern.compile("Log_\\d+")));
+    Assertions.assertTrue(validator.isValid("title"));
+    Assertions.assertTrue(validator.isValid("Log_2022"));
+    AllowListProviderRegistry.register("RELOAD_COLUMN", new ExactWordAllowListProvider(true, "date"));
+    Assertions.assertFalse(validator.isValid("title"));
+    Assertions.assertTrue(validator.isValid("date"));
+    AllowListProviderRegistry.unregister("RELOAD_TABLE");
+    Assertions.assertFalse(validator.isValid("Log_2022"));
+    Assertions.assertFalse(AllowListProviderRegistry.isValid("Log_2022", "RELOAD_TABLE"));
+  }
+
+  @Test
+  void caseInsensitiveWords(){
+    var provider = new ExactWordAllowListProvider(false, "blog_id", "Title", "DATE", "title");
+    Assertions.assertTrue(provider.isValid("BLOG_ID"));
+    Assertions.assertTrue(provider.isValid("title"));
+    Assertions.assertTrue(provider.isValid("Date"));
+    Assertions.assertFalse(provider.isValid("blog"));
+    Assertions.assertFalse(provider.isValid(""));
+    Assertions.assertFalse(new ExactWordAllowListProvider(false).isValid("title"));
+  }
+
+  @Test
+  void wordsFromResource() throws Exception {
+    var provider = ExactWordAllowListProvider.fromResource(true, "sqli/post_columns.txt");
+    Assertions.assertTrue(provider.isValid("blog_id"));
+    Assertions.assertTrue(provider.isValid("writer_email"));
+    Assertions.assertFalse(provider.isValid("Title"));
+    Assertions.assertFalse(provider.isValid(""));
+  }
+
+  @Test
+  void compositeRegexReportsAcceptedProvider(){
+    Map<String, Pattern> patterns = new LinkedHashMap<>();
+    patterns.put("LOG_TABLE", Pattern.compile("Log_\\d{6}"));
+    patterns.put("BOARD_TABLE", Pattern.compile("board_(\\w+)", Pattern.CASE_INSENSITIVE));
+    patterns.put("REPEATED", Pattern.compile("(a)\\1"));
+    patterns.put("COMMENTED", Pattern.compile("x y # a comment", Pattern.COMMENTS));
+    var provider = new CompositeRegexAllowListProvider(patterns);
+    Assertions.assertEquals("LOG_TABLE", provider.acceptedBy("Log_200102"));
+    Assertions.assertEquals("BOARD_TABLE", provider.acceptedBy("BOARD_notice"));
+    Assertions.assertEquals("REPEATED", provider.acceptedBy("aa"));
+    Assertions.assertEquals("COMMENTED", provider.acceptedBy("xy"));
+    Assertions.assertNull(provider.acceptedBy("Log_2001"));
+    Assertions.assertFalse(provider.isValid("board_1; drop table users"));
+  }
+
+  @Test
+  void patternsWithNamedGroupsAreMatchedSeparately(){
+    Map<String, Pattern> patterns = new LinkedHashMap<>();
+    patterns.put("LOG_TABLE", Pattern.compile("log_(?<suffix>\\d+)"));
+    patterns.put("BOARD_TABLE", Pattern.compile("board_(?<suffix>\\w+)"));
+    patterns.put("PREFIX_CLASH", Pattern.compile("(?<allowList0>x)y"));
+    patterns.put("PAIR", Pattern.compile("(?<c>[a-z])\\k<c>"));
+    patterns.put("PLAIN", Pattern.compile("plain_\\d"));
+    var provider = new CompositeRegexAllowListProvider(patterns);
+    Assertions.assertEquals("LOG_TABLE", provider.acceptedBy("log_1"));
+    Assertions.assertEquals("BOARD_TABLE", provider.acceptedBy("board_a"));
+    Assertions.assertEquals("PREFIX_CLASH", provider.acceptedBy("xy"));
+    Assertions.assertEquals("PAIR", provider.acceptedBy("bb"));
+    Assertions.assertEquals("PLAIN", provider.acceptedBy("plain_1"));
+    Assertions.assertNull(provider.acceptedBy("ab"));
+  }
+
+  @Test
+  void firstAllowListInPriorityIsReported(){
+    Map<String, Pattern> patterns = new LinkedHashMap<>();
+    patterns.put("NAMED_WORD", Pattern.compile("(?<word>\\w+)"));
+    patterns.put("LOG_TABLE", Pattern.compile("log_\\d"));
+    Assertions.assertEquals("NAMED_WORD", new CompositeRegexAllowListProvider(patterns).acceptedBy("log_1"));
+    patterns.remove("NAMED_WORD");
+    patterns.put("NAMED_WORD", Pattern.compile("(?<word>\\w+)"));
+    var provider = new CompositeRegexAllowListProvider(patterns);
+    Assertions.assertEquals("LOG_TABLE", provider.acceptedBy("log_1"));
+    Assertions.assertEquals("NAMED_WORD", provider.acceptedBy("log_x"));
+  }
+
+  @Test
+  void resolvedRegexProvidersAreMerged(){
+    AllowListProviderRegistry.register("MERGE_LOG", RegexAllowListProvider.create(Pattern.compile("Log_\\d+")));
+    AllowListProviderRegistry.register("MERGE_BOARD", RegexAllowListProvider.create(Pattern.compile("Board_\\w+")));
+    AllowListProviderRegistry.register("MERGE_WORDS", new ExactWordAllowListProvider(true, "Blog"));
+    AllowListProvider validator = AllowListProviderRegistry.resolve("MERGE_LOG", "MERGE_BOARD", "MERGE_WORDS");
+    Assertions.assertTrue(validator.isValid("Log_1"));
+    Assertions.assertTrue(validator.isValid("Board_a"));
+    Assertions.assertTrue(validator.isValid("Blog"));
+    Assertions.assertFalse(validator.isValid("User"));
+    AllowListProviderRegistry.register("MERGE_BOARD", RegexAllowListProvider.create(Pattern.compile("User")));
+    Assertions.assertTrue(validator.isValid("User"));
+    Assertions.assertFalse(validator.isValid("Board_a"));
+    Assertions.assertTrue(AllowListProviderRegistry.isValid("User", "MERGE_LOG", "MERGE_BOARD"));
+    AllowListProviderRegistry.register("MERGE_BOARD", RegexAllowListProvider.create(Pattern.compile("Board_\\w+")));
+    Assertions.assertFalse(AllowListProviderRegistry.isValid("User", "MERGE_LOG", "MERGE_BOARD"));
+    Assertions.assertTrue(AllowListProviderRegistry.isValid("Board_a", "MERGE_LOG", "MERGE_BOARD"));
+  }
 }
@@ -16,6 +16,7 @@
 package sqli;
 
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
 import java.util.List;
 import java.util.Map;
@@ -26,4 +27,7 @@ public interface Mapper {
 
   List<Map<String, Object>> getUsersAndGroupsMap(Integer id);
 
+  @Select("select distinct name from users where id = #{id} order by ${orderBy,allowList=sqli.columns,pattern=[a-z]+}")
+  List<String> getUserNames(@Param("id") Integer id, @Param("orderBy") String orderBy);
+
 }
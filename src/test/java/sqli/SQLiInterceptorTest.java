@@ -0,0 +1,216 @@
+package sqli;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+class SQLiInterceptorTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("sqli/mybatis-config-interceptor.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+      "sqli/CreateDB.sql");
+  }
+
+  @Test
+  void safeValueIsExecuted() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Map<String, Object> param = new HashMap<>();
+      param.put("keyword", "User1' or '1'='1");
+      param.put("orderBy", "name");
+      Assertions.assertTrue(session.selectList("sqli.Mapper.searchUsers", param).isEmpty());
+    }
+  }
+
+  @Test
+  void injectedValueIsRejected() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Map<String, Object> param = new HashMap<>();
+      param.put("keyword", "User1");
+      param.put("orderBy", "name or 1=1");
+      PersistenceException e = Assertions.assertThrows(PersistenceException.class,
+          () -> session.selectList("sqli.Mapper.searchUsers", param));
+      Assertions.assertTrue(e.getCause() instanceof SQLInjectionException);
+    }
+  }
+
+  @Test
+  void excludedStatementIsNotInspected() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Mapper mapper = session.getMapper(Mapper.class);
+      Assertions.assertEquals(1, mapper.getUsersAndGroups(1, "'User1'").size());
+    }
+  }
+
+  @Test
+  void sampling() {
+    SQLiInterceptor interceptor = new SQLiInterceptor();
+    Properties properties = new Properties();
+    properties.setProperty("samplePercent", "0");
+    properties.setProperty("excludes", "com.acme.ReportMapper.*, com.acme.UserMapper.select");
+    interceptor.setProperties(properties);
+    Assertions.assertFalse(interceptor.shouldInspect("com.acme.UserMapper.update"));
+
+    properties.setProperty("sampleEvery", "1");
+    properties.remove("samplePercent");
+    interceptor = new SQLiInterceptor();
+    interceptor.setProperties(properties);
+    Assertions.assertTrue(interceptor.shouldInspect("com.acme.UserMapper.update"));
+    Assertions.assertFalse(interceptor.shouldInspect("com.acme.UserMapper.select"));
+    Assertions.assertFalse(interceptor.shouldInspect("com.acme.ReportMapper.selectAll"));
+  }
+
+  @Test
+  void invalidSamplingIsRejected() {
+    for (String[] property : new String[][] { { "sampleEvery", "0" }, { "sampleEvery", "-2" }, { "sampleEvery", "x" },
+        { "samplePercent", "-1" }, { "samplePercent", "101" }, { "samplePercent", "NaN" } }) {
+      Properties properties = new Properties();
+      properties.setProperty(property[0], property[1]);
+      IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class,
+          () -> new SQLiInterceptor().setProperties(properties));
+      Assertions.assertTrue(e.getMessage().startsWith(property[0]), e.getMessage());
+    }
+  }
+
+  @Test
+  void exceededBudgetFollowsMode() throws Throwable {
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement("sqli.Mapper.searchUsers");
+    Map<String, Object> param = new HashMap<>();
+    param.put("keyword", "User1");
+    param.put("orderBy", "name");
+    Object[] args = { ms, param, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER };
+    Executor executor = Mockito.mock(Executor.class);
+    Invocation invocation = new Invocation(executor,
+        Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class),
+        args);
+    SQLiPatternChecker.setScanBudget(new ScanBudget.Builder().maxStrings(0).policy(ScanBudget.Policy.REJECT).build());
+    try {
+      Assertions.assertThrows(SQLInjectionException.class, () -> new SQLiInterceptor().intercept(invocation));
+
+      SQLiInterceptor interceptor = new SQLiInterceptor();
+      Properties properties = new Properties();
+      properties.setProperty("mode", "log");
+      interceptor.setProperties(properties);
+      interceptor.intercept(invocation);
+      Mockito.verify(executor).query(ms, param, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    } finally {
+      SQLiPatternChecker.setScanBudget(ScanBudget.UNLIMITED);
+    }
+  }
+
+  @Test
+  void missingSignaturesAreRejectedInAnyMode() throws Throwable {
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement("sqli.Mapper.searchUsers");
+    Map<String, Object> param = new HashMap<>();
+    param.put("keyword", "User1");
+    param.put("orderBy", "name");
+    Object[] args = { ms, param, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER };
+    Executor executor = Mockito.mock(Executor.class);
+    Invocation invocation = new Invocation(executor,
+        Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class),
+        args);
+    SQLiInterceptor interceptor = new SQLiInterceptor();
+    Properties properties = new Properties();
+    properties.setProperty("mode", "log");
+    interceptor.setProperties(properties);
+    SQLiPatternChecker.clearSignatures();
+    try {
+      Assertions.assertThrows(SQLInjectionException.class, () -> interceptor.intercept(invocation));
+      Assertions.assertTrue(new SQLiVerdictCache().isInjection(ms, param));
+      Mockito.verifyNoInteractions(executor);
+    } finally {
+      SQLiPatternChecker.setSignatureSource(ClassPathSignatureSource.defaults());
+    }
+  }
+
+  @Test
+  void allowLists() throws Exception {
+    SqlSessionFactory sqlSessionFactory;
+    try (Reader reader = Resources.getResourceAsReader("sqli/mybatis-config-interceptor.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    AllowListProviderRegistry.register("USER_COLUMN", new ExactWordAllowListProvider(false, "id", "name"));
+    SQLiInterceptor interceptor = new SQLiInterceptor();
+    Properties properties = new Properties();
+    properties.setProperty("allowLists", "USER_COLUMN");
+    interceptor.setProperties(properties);
+    sqlSessionFactory.getConfiguration().addInterceptor(interceptor);
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Map<String, Object> param = new HashMap<>();
+      param.put("keyword", "User1");
+      param.put("orderBy", "NAME");
+      Assertions.assertEquals(1, session.selectList("sqli.Mapper.searchUsers", param).size());
+      param.put("orderBy", "group_id");
+      PersistenceException e = Assertions.assertThrows(PersistenceException.class,
+          () -> session.selectList("sqli.Mapper.searchUsers", param));
+      Assertions.assertTrue(e.getCause() instanceof SQLInjectionException);
+    }
+  }
+
+  @Test
+  void metrics() throws Exception {
+    SqlSessionFactory sqlSessionFactory;
+    try (Reader reader = Resources.getResourceAsReader("sqli/mybatis-config-interceptor.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    SQLiInterceptor interceptor = new SQLiInterceptor();
+    Properties properties = new Properties();
+    properties.setProperty("metrics", "jmx");
+    properties.setProperty("metricsName", "SQLiInterceptorTest");
+    properties.setProperty("excludes", "sqli.Mapper.getUsersAndGroups");
+    interceptor.setProperties(properties);
+    sqlSessionFactory.getConfiguration().addInterceptor(interceptor);
+    SQLiMetricsRegistry metrics = (SQLiMetricsRegistry) interceptor.getMetrics();
+    ObjectName name = new ObjectName("sqli:type=SQLiMetrics,name=" + ObjectName.quote("SQLiInterceptorTest"));
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Map<String, Object> param = new HashMap<>();
+      param.put("keyword", "User1");
+      param.put("orderBy", "name");
+      session.selectList("sqli.Mapper.searchUsers", param);
+      param.put("orderBy", "name or 1=1");
+      Assertions.assertThrows(PersistenceException.class, () -> session.selectList("sqli.Mapper.searchUsers", param));
+      session.getMapper(Mapper.class).getUsersAndGroups(1, "'User1'");
+
+      Assertions.assertEquals(2L, metrics.getChecks().get("sqli.Mapper.searchUsers"));
+      Assertions.assertEquals(1L, metrics.getSkipped().get("sqli.Mapper.getUsersAndGroups"));
+      Assertions.assertTrue(metrics.getStringsScanned().get("sqli.Mapper.searchUsers") >= 2);
+      Assertions.assertTrue(metrics.getScanNanosP50().get("sqli.Mapper.searchUsers") > 0);
+      Assertions.assertEquals(1, metrics.getMatchesBySignature().size());
+      Assertions.assertEquals(1L, metrics.getSignatureMatches().get("sqli.Mapper.searchUsers"));
+
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      Assertions.assertNotNull(server.getAttribute(name, "Checks"));
+      Assertions.assertNotNull(server.getAttribute(name, "SignatureMatches"));
+      metrics.reset();
+      Assertions.assertTrue(metrics.getChecks().isEmpty());
+    } finally {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    }
+  }
+}
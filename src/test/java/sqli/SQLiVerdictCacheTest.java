@@ -0,0 +1,110 @@
+package sqli;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class SQLiVerdictCacheTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("sqli/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+  }
+
+  @Test
+  void repeatedValuesAreServedFromCache() {
+    SQLiVerdictCache cache = (SQLiVerdictCache) sqlSessionFactory.getConfiguration().getSqlInjectionDetector();
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Map<String, Object> param = new HashMap<>();
+      param.put("keyword", "O'Brien");
+      param.put("orderBy", "name");
+      Assertions.assertFalse(session.checkSQLInjection("sqli.Mapper.searchUsers", param));
+      param.put("keyword", "another keyword");
+      Assertions.assertFalse(session.checkSQLInjection("sqli.Mapper.searchUsers", param));
+      param.put("orderBy", "name or 1=1");
+      Assertions.assertTrue(session.checkSQLInjection("sqli.Mapper.searchUsers", param));
+      Assertions.assertTrue(session.checkSQLInjection("sqli.Mapper.searchUsers", param));
+    }
+    Assertions.assertEquals(2, cache.getHits());
+    Assertions.assertEquals(2, cache.getMisses());
+    Assertions.assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  void valuesDifferingInWhitespaceOrCaseShareVerdict() {
+    SQLiVerdictCache cache = (SQLiVerdictCache) sqlSessionFactory.getConfiguration().getSqlInjectionDetector();
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Map<String, Object> param = new HashMap<>();
+      for (String orderBy : List.of("name desc", "NAME  DESC", "Name\tDesc")) {
+        param.put("orderBy", orderBy);
+        Assertions.assertFalse(session.checkSQLInjection("sqli.Mapper.searchUsers", param));
+      }
+      for (String orderBy : List.of("name or 1=1", "NAME OR 1 = 1")) {
+        param.put("orderBy", orderBy);
+        Assertions.assertTrue(session.checkSQLInjection("sqli.Mapper.searchUsers", param));
+      }
+    }
+    Assertions.assertEquals(3, cache.getHits());
+    Assertions.assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  void cacheIsBounded() {
+    SQLiVerdictCache cache = new SQLiVerdictCache(2, 16);
+    sqlSessionFactory.getConfiguration().setSqlInjectionDetector(cache);
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Map<String, Object> param = new HashMap<>();
+      for (String orderBy : List.of("id", "name", "email", "id")) {
+        param.put("orderBy", orderBy);
+        Assertions.assertFalse(session.checkSQLInjection("sqli.Mapper.searchUsers", param));
+      }
+      param.put("orderBy", "a_column_name_longer_than_the_key");
+      Assertions.assertFalse(session.checkSQLInjection("sqli.Mapper.searchUsers", param));
+    }
+    Assertions.assertEquals(2, cache.getSize());
+    Assertions.assertEquals(0, cache.getHits());
+    Assertions.assertEquals(4, cache.getMisses());
+    Assertions.assertEquals(1, cache.getBypasses());
+  }
+
+  @Test
+  void valuesAreVisitedOnceWhenNotCached() {
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement("sqli.Mapper.searchUsers");
+    Map<String, Object> param = new HashMap<>();
+    param.put("orderBy", List.of("name", "email or 1=1"));
+
+    SQLiVerdictCache cache = new SQLiVerdictCache(2, 8);
+    ScanStats stats = new ScanStats();
+    Assertions.assertNotNull(cache.check(ms, param, stats));
+    Assertions.assertEquals(2, stats.getStrings());
+    Assertions.assertEquals(1, cache.getBypasses());
+
+    SQLiPatternChecker.setScanBudget(new ScanBudget.Builder().maxStrings(1).policy(ScanBudget.Policy.ALLOW).build());
+    try {
+      ScanStats once = new ScanStats();
+      SQLiPatternChecker.visitAllStringMembers(List.of(param.get("orderBy")), value -> true, once);
+      cache = new SQLiVerdictCache();
+      stats = new ScanStats();
+      Assertions.assertNull(cache.check(ms, param, stats));
+      Assertions.assertEquals(once.getStrings(), stats.getStrings());
+      Assertions.assertEquals(1, cache.getBypasses());
+      Assertions.assertEquals(0, cache.getSize());
+    } finally {
+      SQLiPatternChecker.setScanBudget(ScanBudget.UNLIMITED);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package sqli;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class SignatureMatcherTest {
+
+  @Test
+  void firstMatchIgnoresWhitespaceAndCase() {
+    SignatureMatcher matcher = SignatureMatcher.compile(List.of("or 1=1", "union select"));
+    Assertions.assertEquals("or 1=1", matcher.firstMatch("10 OR  1 = 1"));
+    Assertions.assertEquals("union select", matcher.firstMatch("1 UNION\tSELECT null"));
+    Assertions.assertNull(matcher.firstMatch("order by name"));
+    Assertions.assertNull(matcher.firstMatch(""));
+  }
+
+  @Test
+  void firstMatchReportsEarliestEndingSignature() {
+    SignatureMatcher matcher = SignatureMatcher.compile(List.of("abcd", "bc"));
+    Assertions.assertEquals("bc", matcher.firstMatch("xabcd"));
+  }
+
+  @Test
+  void allMatchesFollowsSuffixLinks() {
+    SignatureMatcher matcher = SignatureMatcher.compile(List.of("he", "she", "his", "hers"));
+    Assertions.assertEquals(List.of("she", "he", "hers"), matcher.allMatches("ushers"));
+    Assertions.assertEquals(List.of(), matcher.allMatches("xyz"));
+  }
+
+  @Test
+  void emptyAndDuplicatedSignaturesAreIgnored() {
+    SignatureMatcher matcher = SignatureMatcher.compile(List.of("", "  ", "or 1=1", "OR 1 = 1"));
+    Assertions.assertEquals(1, matcher.size());
+    Assertions.assertNull(matcher.firstMatch("   "));
+  }
+
+  @Test
+  void allPatternsAreReported() {
+    List<String> patterns = SQLiPatternChecker.findAllSQLInjectionPatterns(List.of("1' or '1' = '1", "grp1"));
+    Assertions.assertTrue(patterns.contains("'"));
+    Assertions.assertTrue(patterns.size() > 1);
+    Assertions.assertTrue(SQLiPatternChecker.findAllSQLInjectionPatterns(List.of("grp1")).isEmpty());
+  }
+}
@@ -0,0 +1,148 @@
+package sqli;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class SignatureSourceTest {
+
+  @TempDir
+  Path dir;
+
+  @AfterEach
+  void restoreDefaults() throws IOException {
+    SQLiPatternChecker.setSignatureSource(ClassPathSignatureSource.defaults());
+  }
+
+  @Test
+  void signaturesAreSwappedAtomically() throws IOException {
+    SignatureMatcher defaults = SQLiPatternChecker.getSignatureMatcher();
+    Assertions.assertNotNull(SQLiPatternChecker.containsSQLInjectionPattern("1 or 1=1"));
+
+    SQLiPatternChecker.setSignatureSource(SignatureSource.of(List.of("drop table")));
+    Assertions.assertNotSame(defaults, SQLiPatternChecker.getSignatureMatcher());
+    Assertions.assertNull(SQLiPatternChecker.containsSQLInjectionPattern("1 or 1=1"));
+    Assertions.assertEquals("drop table", SQLiPatternChecker.containsSQLInjectionPattern("x; DROP TABLE users"));
+  }
+
+  @Test
+  void brokenSourceKeepsCurrentSignatures() {
+    SignatureMatcher current = SQLiPatternChecker.getSignatureMatcher();
+    Assertions.assertThrows(IOException.class,
+        () -> SQLiPatternChecker.setSignatureSource(new FileSignatureSource(dir.resolve("missing.txt"))));
+    Assertions.assertSame(current, SQLiPatternChecker.getSignatureMatcher());
+  }
+
+  @Test
+  void checksFailClosedUntilSignaturesAreLoaded() throws IOException {
+    SQLiPatternChecker.clearSignatures();
+    Assertions.assertFalse(SQLiPatternChecker.isSignaturesLoaded());
+    Assertions.assertThrows(SQLInjectionException.class, () -> SQLiPatternChecker.containsSQLInjectionPattern("name"));
+    Assertions.assertThrows(SQLInjectionException.class, () -> SQLiPatternChecker.findAllSQLInjectionPatterns("name"));
+
+    SQLiPatternChecker.setSignatureSource(SignatureSource.of(List.of("drop table")));
+    Assertions.assertTrue(SQLiPatternChecker.isSignaturesLoaded());
+    Assertions.assertNull(SQLiPatternChecker.containsSQLInjectionPattern("name"));
+  }
+
+  @Test
+  void binaryFormatRoundTrips() throws IOException {
+    SignatureMatcher matcher = ClassPathSignatureSource.defaults().compile();
+    Path file = dir.resolve("signatures.bin");
+    matcher.writeTo(file);
+
+    SignatureMatcher loaded = new BinarySignatureSource(file).compile();
+    Assertions.assertEquals(matcher.getSignatures(), loaded.getSignatures());
+    for (String text : List.of("1' or '1' = '1", "1 UNION SELECT null", "grp1", "name")) {
+      Assertions.assertEquals(matcher.firstMatch(text), loaded.firstMatch(text));
+      Assertions.assertEquals(matcher.allMatches(text), loaded.allMatches(text));
+    }
+  }
+
+  @Test
+  void brokenBinaryIsRejected() throws IOException {
+    Path file = dir.resolve("signatures.bin");
+    SignatureMatcher.compile(List.of("or 1=1")).writeTo(file);
+    byte[] bytes = Files.readAllBytes(file);
+    Assertions.assertThrows(IOException.class,
+        () -> SignatureMatcher.readFrom(ByteBuffer.wrap(bytes, 0, bytes.length - 1)));
+    Assertions.assertThrows(IOException.class, () -> SignatureMatcher.readFrom(ByteBuffer.wrap(new byte[16])));
+  }
+
+  @Test
+  void cyclicFailureLinksAreRejected() throws IOException {
+    // states: root -a-> 1 -b-> 2, root -b-> 3 -a-> 4
+    ByteBuffer buffer = compiledBuffer(List.of("ab", "ba"));
+    int failure = failureOffset(buffer);
+    buffer.putInt(failure + 1 * Integer.BYTES, 3);
+    buffer.putInt(failure + 3 * Integer.BYTES, 1);
+    IOException e = Assertions.assertThrows(IOException.class, () -> SignatureMatcher.readFrom(buffer));
+    Assertions.assertTrue(e.getMessage().contains("failure link"));
+
+    ByteBuffer rootLoop = compiledBuffer(List.of("ab", "ba"));
+    rootLoop.putInt(failureOffset(rootLoop), 1);
+    Assertions.assertThrows(IOException.class, () -> SignatureMatcher.readFrom(rootLoop));
+  }
+
+  @Test
+  void unsortedTransitionsAreRejected() throws IOException {
+    ByteBuffer buffer = compiledBuffer(List.of("ab", "ba"));
+    // swap transitions of the root, which still lead to the same states
+    int edgeChars = failureOffset(buffer) - 4 * Integer.BYTES - 4 * Character.BYTES;
+    int edgeTargets = edgeChars + 4 * Character.BYTES;
+    buffer.putChar(edgeChars, 'b').putChar(edgeChars + Character.BYTES, 'a');
+    buffer.putInt(edgeTargets, 3).putInt(edgeTargets + Integer.BYTES, 1);
+    Assertions.assertThrows(IOException.class, () -> SignatureMatcher.readFrom(buffer));
+  }
+
+  private ByteBuffer compiledBuffer(List<String> signatures) throws IOException {
+    Path file = dir.resolve("crafted.bin");
+    SignatureMatcher.compile(signatures).writeTo(file);
+    return ByteBuffer.wrap(Files.readAllBytes(file));
+  }
+
+  // the offset of failure links, which follow edge starts, edge chars and edge targets
+  private static int failureOffset(ByteBuffer buffer) {
+    ByteBuffer header = buffer.duplicate();
+    header.position(2 * Integer.BYTES);
+    int signatures = header.getInt();
+    for (int i = 0; i < signatures; i++) {
+      int length = header.getInt();
+      header.position(header.position() + length * Character.BYTES);
+    }
+    int states = header.getInt();
+    int edges = header.getInt();
+    return header.position() + (states + 1) * Integer.BYTES + edges * (Character.BYTES + Integer.BYTES);
+  }
+
+  @Test
+  void fileSourceIsReloaded() throws Exception {
+    Path file = dir.resolve("signatures.txt");
+    Files.writeString(file, "drop table\n");
+    FileSignatureSource source = new FileSignatureSource(file);
+    SQLiPatternChecker.setSignatureSource(source);
+    Assertions.assertNull(SQLiPatternChecker.containsSQLInjectionPattern("1 or 1=1"));
+
+    CountDownLatch reloaded = new CountDownLatch(1);
+    try (Closeable watch = source.watch(() -> {
+      SQLiPatternChecker.reloadSignatures();
+      if (SQLiPatternChecker.getSignatureMatcher().size() == 2) {
+        reloaded.countDown();
+      }
+    })) {
+      Files.writeString(file, "drop table\nOR 1=1\n");
+      Assertions.assertTrue(reloaded.await(30, TimeUnit.SECONDS));
+    }
+    Assertions.assertEquals("or 1=1", SQLiPatternChecker.containsSQLInjectionPattern("1 or 1=1"));
+  }
+}
@@ -0,0 +1,127 @@
+package sqli;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.xmltags.SubstitutionContext;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.ibatis.scripting.xmltags.SubstitutionContext.BLOCK_COMMENT;
+import static org.apache.ibatis.scripting.xmltags.SubstitutionContext.CODE;
+import static org.apache.ibatis.scripting.xmltags.SubstitutionContext.QUOTED_IDENTIFIER;
+import static org.apache.ibatis.scripting.xmltags.SubstitutionContext.STRING;
+
+class SqlStructureDetectorTest {
+
+  private static Configuration configuration;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("sqli/mybatis-config.xml")) {
+      configuration = new SqlSessionFactoryBuilder().build(reader).getConfiguration();
+    }
+  }
+
+  @Test
+  void lexerSplitsTokens() {
+    SqlLexer lexer = new SqlLexer().reset("a.b, 'it''s' -- c\n/* d */ 1.5e3 >= ?");
+    List<SqlLexer.TokenType> types = new ArrayList<>();
+    for (SqlLexer.TokenType type = lexer.next(); type != null; type = lexer.next()) {
+      types.add(type);
+    }
+    Assertions.assertEquals(List.of(SqlLexer.TokenType.IDENTIFIER, SqlLexer.TokenType.DOT,
+        SqlLexer.TokenType.IDENTIFIER, SqlLexer.TokenType.COMMA, SqlLexer.TokenType.STRING,
+        SqlLexer.TokenType.COMMENT, SqlLexer.TokenType.COMMENT, SqlLexer.TokenType.NUMBER,
+        SqlLexer.TokenType.OPERATOR, SqlLexer.TokenType.OPERATOR), types);
+  }
+
+  @Test
+  void contextsOfPlaceholders() {
+    Assertions.assertEquals(List.of(CODE, STRING, QUOTED_IDENTIFIER, CODE, BLOCK_COMMENT),
+        SubstitutionContext.contextsOf("select \0 from t where a = 'x''\0' and \"\0\" = #{b} and \0 /* \0 */", '\0'));
+  }
+
+  @Test
+  void valuesInCode() {
+    for (String safe : List.of("", "name", "u.name desc, 2 asc nulls last", "\"order\"", "-1", "'O''Brien'",
+        "users u", "users as u, orders \"o\"")) {
+      Assertions.assertNull(SqlStructureDetector.check(safe, CODE), safe);
+    }
+    for (String injected : List.of("name or 1=1", "1; drop table users", "name -- ", "name/**/", "1 union select 1",
+        "1union select 1", "O'Brien", "name,", "(select 1)", "a)", "'a\\'", "name#", "users u v", "users as",
+        "(1)")) {
+      Assertions.assertNotNull(SqlStructureDetector.check(injected, CODE), injected);
+    }
+  }
+
+  @Test
+  void functionsAndNonStructuralWordsInCode() {
+    for (String safe : List.of("end", "first, last", "set", "all", "name desc nulls first")) {
+      Assertions.assertNull(SqlStructureDetector.check(safe, CODE), safe);
+    }
+    for (String injected : List.of("name = 1", "1 union all select 1", "exists(select 1)",
+        "case when 1=1 then 1 end", "name left join users", "name desc first", "lower(name)",
+        "price * quantity desc", "-price", "id / 10", "sleep(5)", "benchmark(10000000,md5(1))",
+        "extractvalue(1,concat(0x7e,version()))", "sleep(ascii(substr(database(),1,1))/10)")) {
+      Assertions.assertNotNull(SqlStructureDetector.check(injected, CODE), injected);
+    }
+  }
+
+  @Test
+  void onlyAllowedFunctionsInCode() {
+    SqlStructureDetector.setAllowedFunctions(List.of("left", "Right", "replace", "mod", "count", "lower", "coalesce"));
+    try {
+      for (String safe : List.of("left(name, 3)", "right(name,2) desc", "replace(name, 'a', 'b')", "mod(id, 3)",
+          "count(*)", "count(distinct name)", "count(*) total", "LOWER(name)", "coalesce(a, 'b')")) {
+        Assertions.assertNull(SqlStructureDetector.check(safe, CODE), safe);
+      }
+      for (String injected : List.of("sleep(5)", "benchmark(10000000,md5(1))", "extractvalue(1,concat(0x7e,version()))",
+          "sleep(ascii(substr(database(),1,1))/10)", "lower(sleep(5))", "count(*) from users", "sleep(5) or 1",
+          "mod(id, 3) * 2", "u.lower(name)")) {
+        Assertions.assertNotNull(SqlStructureDetector.check(injected, CODE), injected);
+      }
+    } finally {
+      SqlStructureDetector.setAllowedFunctions(List.of());
+    }
+  }
+
+  @Test
+  void valuesInQuotes() {
+    Assertions.assertNull(SqlStructureDetector.check("O''Brien or 1=1 --", STRING));
+    Assertions.assertNotNull(SqlStructureDetector.check("O'Brien", STRING));
+    Assertions.assertNotNull(SqlStructureDetector.check("x\\' or 1=1", STRING));
+    Assertions.assertNotNull(SqlStructureDetector.check("x\\", STRING));
+    Assertions.assertNull(SqlStructureDetector.check("it's", QUOTED_IDENTIFIER));
+    Assertions.assertNotNull(SqlStructureDetector.check("a\" or 1=1", QUOTED_IDENTIFIER));
+    Assertions.assertNotNull(SqlStructureDetector.check("*/ or 1=1", BLOCK_COMMENT));
+  }
+
+  @Test
+  void substitutedValuesOfStatement() {
+    MappedStatement ms = configuration.getMappedStatement("sqli.Mapper.searchUsers");
+    Map<String, Object> param = new HashMap<>();
+    param.put("keyword", "O'Brien");   // bound with #{}
+    param.put("orderBy", "name desc");
+    Assertions.assertNull(SqlStructureDetector.check(ms, param));
+    param.put("orderBy", "name; delete from users");
+    Assertions.assertNotNull(SqlStructureDetector.check(ms, param));
+
+    ms = configuration.getMappedStatement("sqli.Mapper.getUsersFromTables");
+    param.clear();
+    param.put("tablePrefix", "log");
+    param.put("suffixes", List.of("2023", "2024"));
+    param.put("id", 1);
+    Assertions.assertNull(SqlStructureDetector.check(ms, param));
+    param.put("suffixes", List.of("2023", "2024 where 1=1"));
+    Assertions.assertNotNull(SqlStructureDetector.check(ms, param));
+  }
+}
@@ -0,0 +1,45 @@
+package sqli;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class StringMemberPlanTest {
+
+  static class Base {
+    String baseName = "base";
+    static String ignored = "static";
+  }
+
+  static class Dto extends Base {
+    int count = 3;
+    List<String> tags = List.of("tag");
+    int[] numbers = {1, 2};
+    char[] code = {'o', 'k'};
+  }
+
+  @Test
+  void planIsCachedPerClass() {
+    Assertions.assertSame(StringMemberPlan.of(Dto.class), StringMemberPlan.of(Dto.class));
+    Assertions.assertEquals(StringMemberPlan.Kind.OBJECT, StringMemberPlan.of(Dto.class).getKind());
+    Assertions.assertEquals(StringMemberPlan.Kind.NONE, StringMemberPlan.of(int[].class).getKind());
+    Assertions.assertEquals(StringMemberPlan.Kind.BUILT_IN, StringMemberPlan.of(String.class).getKind());
+  }
+
+  @Test
+  void fieldsOfSuperClassesAreFlattened() {
+    StringMemberPlan plan = StringMemberPlan.of(Dto.class);
+    Assertions.assertEquals(2, plan.getValueFields().length);  // count, baseName
+    Assertions.assertEquals(3, plan.getChildFields().length);  // tags, numbers, code
+    Assertions.assertFalse(plan.implementsToString());
+  }
+
+  @Test
+  void collectFromPlan() {
+    List<String> list = new ArrayList<>();
+    SQLiPatternChecker.collectAllStringMembers(new Dto(), list);
+    Assertions.assertEquals(List.of("3", "base", "tag", "ok"), list);
+  }
+}
@@ -0,0 +1,169 @@
+package sqli;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+class StringMemberScannerTest {
+
+  static class Node {
+    String name;
+    Node next;
+
+    Node(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      throw new AssertionError("equals() must not be called");
+    }
+
+    @Override
+    public int hashCode() {
+      throw new AssertionError("hashCode() must not be called");
+    }
+  }
+
+  @Test
+  void cyclicGraphIsVisitedByIdentity() {
+    Node first = new Node("first");
+    Node second = new Node("second");
+    first.next = second;
+    second.next = first;
+    List<String> list = new ArrayList<>();
+    Assertions.assertTrue(SQLiPatternChecker.visitAllStringMembers(first, list::add));
+    Assertions.assertEquals(List.of("first", "second"), list);
+  }
+
+  @Test
+  void visitingStopsAtFirstRejectedMember() {
+    List<String> visited = new ArrayList<>();
+    boolean completed = SQLiPatternChecker.visitAllStringMembers(List.of("a", "b", "c", "d"), value -> {
+      visited.add(value);
+      return !value.equals("b");
+    });
+    Assertions.assertFalse(completed);
+    Assertions.assertEquals(List.of("a", "b"), visited);
+  }
+
+  @Test
+  void firstPatternStopsScanning() {
+    List<Object> parameters = new ArrayList<>();
+    parameters.add("10 or 1=1");
+    parameters.add(new Object() {
+      @Override
+      public String toString() {
+        throw new AssertionError("scanning must stop before this element");
+      }
+    });
+    Assertions.assertNotNull(SQLiPatternChecker.containsSQLInjectionPattern(parameters));
+  }
+
+  @Test
+  void depthIsLimited() {
+    Node first = new Node("first");
+    Node second = new Node("second");
+    first.next = second;
+    second.next = new Node("1 or 1=1");
+    ScanBudget budget = new ScanBudget.Builder().maxDepth(2).policy(ScanBudget.Policy.ALLOW).build();
+    StringMemberScanner scanner = new StringMemberScanner(value -> true, budget);
+    Assertions.assertFalse(scanner.scan(first));
+    Assertions.assertEquals("maxDepth=2", scanner.getExceededBudget());
+  }
+
+  @Test
+  void stringsAndCharsAreLimited() {
+    List<String> values = Collections.nCopies(10, "abcd");
+    StringMemberScanner scanner = new StringMemberScanner(value -> true,
+        new ScanBudget.Builder().maxStrings(5).build());
+    Assertions.assertFalse(scanner.scan(values));
+    Assertions.assertEquals("maxStrings=5", scanner.getExceededBudget());
+
+    scanner = new StringMemberScanner(value -> true, new ScanBudget.Builder().maxChars(10).build());
+    Assertions.assertFalse(scanner.scan(values));
+    Assertions.assertEquals("maxChars=10", scanner.getExceededBudget());
+
+    scanner = new StringMemberScanner(value -> true, new ScanBudget.Builder().maxNanos(0).build());
+    Assertions.assertFalse(scanner.scan(Collections.nCopies(1000, "abcd")));
+    Assertions.assertEquals("maxNanos=0", scanner.getExceededBudget());
+  }
+
+  @Test
+  void policies() {
+    List<String> values = List.of("a", "b", "1 or 1=1");
+    try {
+      SQLiPatternChecker.setScanBudget(new ScanBudget.Builder().maxStrings(2).build());
+      Assertions.assertThrows(SQLInjectionException.class,
+          () -> SQLiPatternChecker.containsSQLInjectionPattern(values));
+      SQLiPatternChecker.setScanBudget(new ScanBudget.Builder().maxStrings(2).policy(ScanBudget.Policy.LOG).build());
+      Assertions.assertNull(SQLiPatternChecker.containsSQLInjectionPattern(values));
+
+      // a policy per limit
+      SQLiPatternChecker.setScanBudget(new ScanBudget.Builder().maxDepth(1).maxStrings(2)
+          .policy(ScanBudget.Policy.ALLOW).policy(ScanBudget.Limit.DEPTH, ScanBudget.Policy.REJECT).build());
+      Assertions.assertNull(SQLiPatternChecker.containsSQLInjectionPattern(values));
+      Assertions.assertThrows(SQLInjectionException.class,
+          () -> SQLiPatternChecker.containsSQLInjectionPattern(List.of(List.of("1 or 1=1"))));
+    } finally {
+      SQLiPatternChecker.setScanBudget(ScanBudget.UNLIMITED);
+    }
+    Assertions.assertNotNull(SQLiPatternChecker.containsSQLInjectionPattern(values));
+  }
+
+  @Test
+  void typeRules() {
+    ScanBudget budget = new ScanBudget.Builder().include("sqli.*").skip(Node.class.getName()).build();
+    Assertions.assertTrue(budget.isVisited(User.class));
+    Assertions.assertFalse(budget.isVisited(Node.class));
+    Assertions.assertFalse(budget.isVisited(LocalDate.class));
+    Assertions.assertFalse(new ScanBudget.Builder().skip("java.time.*").build().isVisited(LocalDate.class));
+
+    List<String> visited = new ArrayList<>();
+    new StringMemberScanner(visited::add, budget).scan(List.of("a", new Node("b")));
+    Assertions.assertEquals(List.of("a"), visited);
+  }
+
+  @Test
+  void largeContainersAreScannedInParallel() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    ParallelScan parallel = new ParallelScan.Builder().threshold(1_000).chunkSize(100).pool(pool).build();
+    try {
+      List<Node> nodes = new ArrayList<>();
+      Map<String, Node> map = new HashMap<>();
+      Node owner = new Node("owner");
+      for (int i = 0; i < 10_000; i++) {
+        Node node = new Node("user" + i);
+        node.next = owner;  // a back reference is not visited again by chunks
+        nodes.add(node);
+        map.put("key" + i, node);
+      }
+      owner.next = new Node("nodes");
+      StringMemberScanner scanner = new StringMemberScanner(value -> true, ScanBudget.UNLIMITED, parallel);
+      Assertions.assertTrue(scanner.scan(List.of(owner, nodes)));
+      Assertions.assertEquals(10_002, scanner.getStrings());
+      scanner = new StringMemberScanner(value -> true, ScanBudget.UNLIMITED, parallel);
+      Assertions.assertTrue(scanner.scan(map));
+      // the owner is found first by chunks, so it can be visited once per chunk
+      Assertions.assertTrue(scanner.getStrings() >= 20_002);
+
+      nodes.get(7_777).name = "1 or 1=1";
+      SQLiPatternChecker.setParallelScan(parallel);
+      Assertions.assertEquals(" or 1=1", SQLiPatternChecker.containsSQLInjectionPattern(nodes.toArray()));
+
+      scanner = new StringMemberScanner(value -> true, new ScanBudget.Builder().maxStrings(5_000).build(), parallel);
+      Assertions.assertFalse(scanner.scan(nodes));
+      Assertions.assertEquals("maxStrings=5000", scanner.getExceededBudget());
+    } finally {
+      SQLiPatternChecker.setParallelScan(ParallelScan.DISABLED);
+      pool.shutdown();
+    }
+  }
+}
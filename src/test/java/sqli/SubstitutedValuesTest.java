@@ -0,0 +1,68 @@
+package sqli;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class SubstitutedValuesTest {
+
+  private static Configuration configuration;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("sqli/mybatis-config.xml")) {
+      configuration = new SqlSessionFactoryBuilder().build(reader).getConfiguration();
+    }
+  }
+
+  @Test
+  void expressionsAreWorkedOutAtBuildTime() {
+    MappedStatement ms = configuration.getMappedStatement("sqli.Mapper.searchUsers");
+    Assertions.assertEquals(List.of("orderBy"), ((DynamicSqlSource) ms.getSqlSource()).getSubstitutionExpressions());
+    ms = configuration.getMappedStatement("sqli.Mapper.getUsersFromTables");
+    Assertions.assertEquals(List.of("tablePrefix + '_'", "suffixes"),
+        ((DynamicSqlSource) ms.getSqlSource()).getSubstitutionExpressions());
+  }
+
+  @Test
+  void onlySubstitutedValuesAreInspected() {
+    MappedStatement ms = configuration.getMappedStatement("sqli.Mapper.searchUsers");
+    Map<String, Object> param = new HashMap<>();
+    param.put("keyword", "O'Brien or 1=1");
+    param.put("orderBy", "name");
+    Assertions.assertEquals(List.of("name"), SubstitutedValues.evaluate(ms, param));
+    Assertions.assertNull(SQLiPatternChecker.containsSQLInjectionPattern(ms, param));
+    Assertions.assertNotNull(SQLiPatternChecker.containsSQLInjectionPattern(param));
+
+    param.put("orderBy", "name; drop table users");
+    Assertions.assertNotNull(SQLiPatternChecker.containsSQLInjectionPattern(ms, param));
+  }
+
+  @Test
+  void foreachItemsAndBindVariablesAreResolved() {
+    MappedStatement ms = configuration.getMappedStatement("sqli.Mapper.getUsersFromTables");
+    Map<String, Object> param = new HashMap<>();
+    param.put("id", 1);
+    param.put("tablePrefix", "log");
+    param.put("suffixes", List.of("2022", "2023 or 1=1"));
+    Assertions.assertEquals(List.of("log_", List.of("2022", "2023 or 1=1")), SubstitutedValues.evaluate(ms, param));
+    Assertions.assertNotNull(SQLiPatternChecker.containsSQLInjectionPattern(ms, param));
+  }
+
+  @Test
+  void staticStatementHasNothingToInspect() {
+    MappedStatement ms = configuration.getMappedStatement("sqli.Mapper.getUsersAndGroupsMap");
+    Assertions.assertEquals(List.of(), SubstitutedValues.evaluate(ms, "' or 1=1"));
+    Assertions.assertNull(SQLiPatternChecker.containsSQLInjectionPattern(ms, "' or 1=1"));
+  }
+}
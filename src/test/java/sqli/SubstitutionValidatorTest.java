@@ -0,0 +1,120 @@
+package sqli;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.ScriptingException;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.TextSqlNode;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class SubstitutionValidatorTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("sqli/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+      "sqli/CreateDB.sql");
+    // registered after mappers are built, which resolved the name already
+    AllowListProviderRegistry.register("sqli.columns", new ExactWordAllowListProvider(false, "id", "name", "group_id"));
+  }
+
+  @AfterAll
+  static void tearDown() {
+    AllowListProviderRegistry.unregister("sqli.columns");
+  }
+
+  @Test
+  void statementValidatorFromXml() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Map<String, Object> param = new HashMap<>();
+      param.put("orderBy", "group_id");
+      param.put("direction", "desc");
+      Assertions.assertEquals(1, session.selectList("sqli.Mapper.sortUsers", param).size());
+
+      param.put("orderBy", "(select 1)");
+      PersistenceException e = Assertions.assertThrows(PersistenceException.class,
+          () -> session.selectList("sqli.Mapper.sortUsers", param));
+      Assertions.assertTrue(e.getCause() instanceof ScriptingException);
+      Assertions.assertTrue(e.getMessage().contains("allow-lists [sqli.columns]"));
+
+      // a validator of a token takes precedence over the one of a statement
+      param.put("orderBy", "name");
+      param.put("direction", "desc, 1");
+      e = Assertions.assertThrows(PersistenceException.class, () -> session.selectList("sqli.Mapper.sortUsers", param));
+      Assertions.assertTrue(e.getMessage().contains("regex asc|desc"));
+    }
+  }
+
+  @Test
+  void tokenValidatorFromAnnotation() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Mapper mapper = session.getMapper(Mapper.class);
+      Assertions.assertEquals(List.of("User1"), mapper.getUserNames(1, "name"));
+      // both an allow-list and a pattern are required
+      Assertions.assertThrows(PersistenceException.class, () -> mapper.getUserNames(1, "group_id"));
+      Assertions.assertThrows(PersistenceException.class, () -> mapper.getUserNames(1, "rol_id"));
+    }
+  }
+
+  @Test
+  void validatorsAreNotPartOfExpressions() {
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement("sqli.Mapper.sortUsers");
+    Assertions.assertEquals(List.of("orderBy", "direction"),
+        ((DynamicSqlSource) ms.getSqlSource()).getSubstitutionExpressions());
+  }
+
+  @Test
+  void closingBracesInTokenPatterns() {
+    Map<String, Object> param = new HashMap<>();
+    param.put("dir", "desc");
+    TextSqlNode node = new TextSqlNode("order by name ${dir,pattern=[a-z]{1,4\\}}");
+    DynamicContext context = new DynamicContext(sqlSessionFactory.getConfiguration(), param);
+    node.apply(context);
+    Assertions.assertEquals("order by name desc", context.getSql());
+    param.put("dir", "descending");
+    Assertions.assertThrows(ScriptingException.class,
+        () -> node.apply(new DynamicContext(sqlSessionFactory.getConfiguration(), param)));
+
+    ScriptingException e = Assertions.assertThrows(ScriptingException.class,
+        () -> new TextSqlNode("order by name ${dir,pattern=[a-z]{1,4}}"));
+    Assertions.assertTrue(e.getMessage().contains("unclosed"));
+    Assertions.assertThrows(ScriptingException.class, () -> new TextSqlNode("order by name ${dir,pattern=(asc}"));
+  }
+
+  @Test
+  void declarations() {
+    Assertions.assertNull(SubstitutionValidator.of(null, null));
+    Assertions.assertNull(SubstitutionValidator.of(" , ", null));
+    SubstitutionValidator validator = SubstitutionValidator.of(null, "[a-z]+");
+    Assertions.assertTrue(validator.isValid("name"));
+    Assertions.assertFalse(validator.isValid("name desc"));
+  }
+
+  @Test
+  void allowListsAreResolvedByTheConfiguredFactory() {
+    Assertions.assertTrue(sqlSessionFactory.getConfiguration().getSubstitutionFilterFactory()
+        instanceof SubstitutionValidatorFactory);
+    ScriptingException e = Assertions.assertThrows(ScriptingException.class,
+        () -> new TextSqlNode("order by ${orderBy,allowList=sqli.columns}"));
+    Assertions.assertTrue(e.getMessage().contains("substitutionFilterFactory"));
+    new TextSqlNode("order by ${orderBy,allowList=sqli.columns}", null, new SubstitutionValidatorFactory());
+  }
+}